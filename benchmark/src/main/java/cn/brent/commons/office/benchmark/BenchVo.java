@@ -0,0 +1,68 @@
+package cn.brent.commons.office.benchmark;
+
+import java.util.Date;
+
+import cn.brent.commons.office.excel.ExcelField;
+import cn.brent.commons.office.excel.ExcelField.ExAlign;
+
+/**
+ * 基准测试数据行，列顺序与{@link Workbooks}生成的工作表一致
+ */
+public class BenchVo {
+
+	@ExcelField(sort = 0, title = "编号")
+	private Long id;
+
+	@ExcelField(sort = 1, title = "名称")
+	private String name;
+
+	@ExcelField(sort = 2, title = "金额", format = "#,##0.00", align = ExAlign.right)
+	private Double amount;
+
+	@ExcelField(sort = 3, title = "日期")
+	private Date day;
+
+	@ExcelField(sort = 4, title = "备注")
+	private String remark;
+
+	public Long getId() {
+		return id;
+	}
+
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public Double getAmount() {
+		return amount;
+	}
+
+	public void setAmount(Double amount) {
+		this.amount = amount;
+	}
+
+	public Date getDay() {
+		return day;
+	}
+
+	public void setDay(Date day) {
+		this.day = day;
+	}
+
+	public String getRemark() {
+		return remark;
+	}
+
+	public void setRemark(String remark) {
+		this.remark = remark;
+	}
+
+}
@@ -0,0 +1,109 @@
+package cn.brent.commons.office.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cn.brent.commons.office.excel.ExportExcel;
+import cn.brent.commons.office.excel.StreamingExportExcel;
+
+/**
+ * 导出基准：setDataList单独计时，setDataList+write整体计时，输出写入空流，吞吐量单位为每秒导出的文件数。
+ * 模式：xls（HSSF，超过65536行自动新建工作表）、xlsx（XSSF）、sxssf（SXSSF临时文件）、streaming（{@link StreamingExportExcel}，
+ * 数据在写出时才拉取，setDataList只包含构造）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class ExportBenchmark {
+
+	@Param({ "10000", "100000", "1000000" })
+	public int rows;
+
+	@Param({ "xls", "xlsx", "sxssf", "streaming" })
+	public String mode;
+
+	private List<BenchVo> data;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		data = Workbooks.data(rows);
+	}
+
+	private ExportExcel<BenchVo> create() {
+		if ("xls".equals(mode)) {
+			return new ExportExcel<BenchVo>(BenchVo.class, false, "基准");
+		} else if ("xlsx".equals(mode)) {
+			return new ExportExcel<BenchVo>(BenchVo.class, true, "基准");
+		} else if ("sxssf".equals(mode)) {
+			return new ExportExcel<BenchVo>(BenchVo.class, "基准", 1000, true);
+		}
+		return new StreamingExportExcel<BenchVo>(BenchVo.class, "基准");
+	}
+
+	@Benchmark
+	public ExportExcel<BenchVo> setDataList() {
+		ExportExcel<BenchVo> ee = create();
+		if (ee instanceof StreamingExportExcel) {
+			// 流式导出在写出时才拉取数据
+			return ee;
+		}
+		ee.setDataList(data);
+		ee.dispose();
+		return ee;
+	}
+
+	@Benchmark
+	public long write() throws IOException {
+		ExportExcel<BenchVo> ee = create();
+		CountingOutputStream os = new CountingOutputStream();
+		try {
+			if (ee instanceof StreamingExportExcel) {
+				((StreamingExportExcel<BenchVo>) ee).write(data.iterator(), os);
+			} else {
+				ee.setDataList(data);
+				ee.write(os);
+			}
+		} finally {
+			ee.dispose();
+		}
+		return os.count;
+	}
+
+	/**
+	 * 只计数的输出流
+	 */
+	static final class CountingOutputStream extends OutputStream {
+
+		long count;
+
+		@Override
+		public void write(int b) {
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			count += len;
+		}
+
+	}
+
+}
@@ -0,0 +1,79 @@
+package cn.brent.commons.office.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cn.brent.commons.office.excel.ImportExcel;
+import cn.brent.commons.office.excel.StreamingImportExcel;
+
+/**
+ * 导入基准：分别以工作薄模式（{@link ImportExcel}）和流式模式（{@link StreamingImportExcel}）
+ * 从文件读取全部数据，每次调用打开一次文件，吞吐量单位为每秒读取的文件数。子类指定文件格式和行数
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public abstract class ImportBenchmark {
+
+	@Param({ "false", "true" })
+	public boolean merged;
+
+	@Param({ "false", "true" })
+	public boolean formula;
+
+	private File file;
+
+	abstract boolean isXlsx();
+
+	abstract int getRows();
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		file = Workbooks.create(isXlsx(), getRows(), merged, formula);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		file.delete();
+	}
+
+	@Benchmark
+	public List<BenchVo> getDatas() throws IOException {
+		ImportExcel<BenchVo> ei = new ImportExcel<BenchVo>(BenchVo.class, file, 0, 0);
+		try {
+			return ei.getDatas();
+		} finally {
+			ei.close();
+		}
+	}
+
+	@Benchmark
+	public List<BenchVo> getDatasStreaming() throws IOException {
+		ImportExcel<BenchVo> ei = new StreamingImportExcel<BenchVo>(BenchVo.class, file, 0, 0);
+		try {
+			return ei.getDatas();
+		} finally {
+			ei.close();
+		}
+	}
+
+}
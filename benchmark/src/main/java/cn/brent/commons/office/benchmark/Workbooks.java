@@ -0,0 +1,113 @@
+package cn.brent.commons.office.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+/**
+ * 生成基准测试用的工作薄
+ *
+ * 首行为表头，之后为数据行，列与{@link BenchVo}对应；名称取1000个不同值。
+ * 合并单元格：名称列每10行合并前5行；公式：备注列为“=B{r}&"-"&A{r}”（不含缓存值，导入时计算）
+ */
+public final class Workbooks {
+
+	/**
+	 * 每行的列数
+	 */
+	static final int COLUMNS = 5;
+
+	private static final String[] TITLES = { "编号", "名称", "金额", "日期", "备注" };
+
+	private Workbooks() {
+	}
+
+	/**
+	 * 生成工作薄到临时文件
+	 *
+	 * @param xlsx
+	 *            true:“XLSX”（SXSSF生成，字符串为内联字符串）；false:“XLS”，单个工作表最多65535行数据
+	 * @param rows
+	 *            数据行数
+	 */
+	public static File create(boolean xlsx, int rows, boolean merged, boolean formula) throws IOException {
+		Workbook wb = xlsx ? new SXSSFWorkbook(1000) : new HSSFWorkbook();
+		if (!xlsx && rows > 65535) {
+			throw new IllegalArgumentException("XLS sheet can hold at most 65535 data rows: " + rows);
+		}
+		File file = File.createTempFile("bench", xlsx ? ".xlsx" : ".xls");
+		file.deleteOnExit();
+		try {
+			CellStyle dateStyle = wb.createCellStyle();
+			dateStyle.setDataFormat(wb.createDataFormat().getFormat("yyyy-MM-dd"));
+			Sheet sheet = wb.createSheet("Data");
+			Row header = sheet.createRow(0);
+			for (int i = 0; i < COLUMNS; i++) {
+				header.createCell(i).setCellValue(TITLES[i]);
+			}
+			long time = System.currentTimeMillis();
+			for (int i = 1; i <= rows; i++) {
+				Row row = sheet.createRow(i);
+				row.createCell(0).setCellValue(i);
+				if (!merged || i % 10 == 1 || i % 10 > 5 || i % 10 == 0) {
+					row.createCell(1).setCellValue("name" + (i % 1000));
+				}
+				row.createCell(2).setCellValue(i * 1.25);
+				Cell day = row.createCell(3);
+				day.setCellValue(new Date(time - i * 60000L));
+				day.setCellStyle(dateStyle);
+				if (formula) {
+					row.createCell(4).setCellFormula("B" + (i + 1) + "&\"-\"&A" + (i + 1));
+				} else {
+					row.createCell(4).setCellValue("remark" + i);
+				}
+				if (merged && i % 10 == 1 && i + 4 <= rows) {
+					sheet.addMergedRegion(new CellRangeAddress(i, i + 4, 1, 1));
+				}
+			}
+			OutputStream os = new FileOutputStream(file);
+			try {
+				wb.write(os);
+			} finally {
+				os.close();
+			}
+		} finally {
+			if (wb instanceof SXSSFWorkbook) {
+				((SXSSFWorkbook) wb).dispose();
+			}
+		}
+		return file;
+	}
+
+	/**
+	 * 生成导出用的数据
+	 */
+	public static List<BenchVo> data(int rows) {
+		List<BenchVo> list = new ArrayList<BenchVo>(rows);
+		long time = System.currentTimeMillis();
+		for (int i = 1; i <= rows; i++) {
+			BenchVo vo = new BenchVo();
+			vo.setId(Long.valueOf(i));
+			vo.setName("name" + (i % 1000));
+			vo.setAmount(i * 1.25);
+			vo.setDay(new Date(time - i * 60000L));
+			vo.setRemark("remark" + i);
+			list.add(vo);
+		}
+		return list;
+	}
+
+}
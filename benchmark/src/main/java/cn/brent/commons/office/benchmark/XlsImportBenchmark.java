@@ -0,0 +1,23 @@
+package cn.brent.commons.office.benchmark;
+
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * “XLS”导入基准；单个工作表最多65536行，最大规模取满一个工作表
+ */
+public class XlsImportBenchmark extends ImportBenchmark {
+
+	@Param({ "10000", "65535" })
+	public int rows;
+
+	@Override
+	boolean isXlsx() {
+		return false;
+	}
+
+	@Override
+	int getRows() {
+		return rows;
+	}
+
+}
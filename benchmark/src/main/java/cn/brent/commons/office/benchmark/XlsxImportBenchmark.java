@@ -0,0 +1,23 @@
+package cn.brent.commons.office.benchmark;
+
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * “XLSX”导入基准；1000000行时工作薄模式需要较大的堆（可用“-jvmArgsAppend -Xmx16g”）
+ */
+public class XlsxImportBenchmark extends ImportBenchmark {
+
+	@Param({ "10000", "100000", "1000000" })
+	public int rows;
+
+	@Override
+	boolean isXlsx() {
+		return true;
+	}
+
+	@Override
+	int getRows() {
+		return rows;
+	}
+
+}
@@ -0,0 +1,67 @@
+package cn.brent.commons.office.excel;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cn.brent.commons.lang.Reflections;
+import cn.brent.commons.office.benchmark.BenchVo;
+
+/**
+ * 属性读写基准：构建映射时缓存方法的{@link PropertyAccessor}与每次按名称查找方法的Reflections.invokeGetter/invokeSetter，
+ * 单位为每次调用的纳秒数。PropertyAccessor为包内可见，基准放在同一包中
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PropertyAccessorBenchmark {
+
+	private BenchVo bean;
+
+	private PropertyAccessor accessor;
+
+	private String value;
+
+	@Setup
+	public void setup() throws NoSuchFieldException {
+		bean = new BenchVo();
+		bean.setName("名称");
+		accessor = PropertyAccessor.forField(BenchVo.class, BenchVo.class.getDeclaredField("name"));
+		value = "n1";
+	}
+
+	@Benchmark
+	public Object accessorGet() {
+		return accessor.get(bean);
+	}
+
+	@Benchmark
+	public Object reflectionsGet() {
+		return Reflections.invokeGetter(bean, "name");
+	}
+
+	@Benchmark
+	public BenchVo accessorSet() {
+		accessor.set(bean, value);
+		return bean;
+	}
+
+	@Benchmark
+	public BenchVo reflectionsSet() {
+		Reflections.invokeSetter(bean, "name", value);
+		return bean;
+	}
+
+}
@@ -0,0 +1,462 @@
+package cn.brent.commons.office.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.FilerException;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * 为带@ExcelField注解的类生成“类名_ExcelMapper”（cn.brent.commons.office.excel.ExcelMapper的子类）
+ *
+ * 生成的类直接调用构造函数、getter/setter和值处理器的构造函数，列的注解值写为常量；
+ * 属性查找规则与运行时反射一致。类、访问方法、值类型或值处理器不可访问（private、非静态内部类、泛型类等）时不生成，运行时仍使用反射；
+ * 已有同名的“类名_ExcelMapper”（如手写的映射）时跳过
+ */
+@SupportedAnnotationTypes(ExcelMapperProcessor.EXCEL_FIELD)
+public class ExcelMapperProcessor extends AbstractProcessor {
+
+	static final String EXCEL_FIELD = "cn.brent.commons.office.excel.ExcelField";
+
+	private static final String EXCEL_MAPPER = "cn.brent.commons.office.excel.ExcelMapper";
+
+	private static final String VALUE_HANDLER = "cn.brent.commons.office.excel.handler.ValueHandler";
+
+	private static final String SUFFIX = "_ExcelMapper";
+
+	/**
+	 * 已生成的类（按实体类名）
+	 */
+	private final Set<String> generated = new HashSet<String>();
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		TypeElement excelField = processingEnv.getElementUtils().getTypeElement(EXCEL_FIELD);
+		if (excelField == null) {
+			return false;
+		}
+		Set<TypeElement> types = new LinkedHashSet<TypeElement>();
+		for (Element e : roundEnv.getElementsAnnotatedWith(excelField)) {
+			if (e.getKind() == ElementKind.FIELD || e.getKind() == ElementKind.METHOD) {
+				types.add((TypeElement) e.getEnclosingElement());
+			}
+		}
+		for (TypeElement type : types) {
+			if (generated.add(type.getQualifiedName().toString())) {
+				generate(type, excelField);
+			}
+		}
+		return false;
+	}
+
+	private void generate(TypeElement type, TypeElement excelField) {
+		String reason = checkType(type);
+		List<Column> columns = new ArrayList<Column>();
+		if (reason == null) {
+			reason = collect(type, excelField, columns);
+		}
+		if (reason != null) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, "ExcelMapper not generated, using reflection: " + reason, type);
+			return;
+		}
+		String pkg = getPackage(type).getQualifiedName().toString();
+		String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+		String simpleName = (pkg.isEmpty() ? binaryName : binaryName.substring(pkg.length() + 1)) + SUFFIX;
+		if (processingEnv.getElementUtils().getTypeElement(binaryName + SUFFIX) != null) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, "ExcelMapper not generated: " + binaryName + SUFFIX + " already exists", type);
+			return;
+		}
+		try {
+			JavaFileObject file = processingEnv.getFiler().createSourceFile(binaryName + SUFFIX, type);
+			Writer out = file.openWriter();
+			try {
+				write(out, pkg, simpleName, type.getQualifiedName().toString(), columns);
+			} finally {
+				out.close();
+			}
+		} catch (FilerException e) {
+			// 同名类已由其它来源生成（如增量编译时的旧输出）
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, "ExcelMapper not generated: " + e.getMessage(), type);
+		} catch (IOException e) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Could not write ExcelMapper: " + e, type);
+		}
+	}
+
+	/**
+	 * 生成的类能否访问实体类及其无参构造函数
+	 * 
+	 * @return 不能生成的原因，可以生成时返回null
+	 */
+	private String checkType(TypeElement type) {
+		if (type.getKind() != ElementKind.CLASS || type.getModifiers().contains(Modifier.ABSTRACT)) {
+			return "not a concrete class";
+		}
+		if (!type.getTypeParameters().isEmpty()) {
+			return "generic class";
+		}
+		for (Element e = type; e instanceof TypeElement; e = e.getEnclosingElement()) {
+			TypeElement t = (TypeElement) e;
+			if (t.getModifiers().contains(Modifier.PRIVATE)) {
+				return "private class";
+			}
+			if (t.getNestingKind() == NestingKind.MEMBER && !t.getModifiers().contains(Modifier.STATIC)) {
+				return "inner class";
+			}
+			if (t.getNestingKind() == NestingKind.LOCAL || t.getNestingKind() == NestingKind.ANONYMOUS) {
+				return "local class";
+			}
+		}
+		List<ExecutableElement> constructors = ElementFilter.constructorsIn(type.getEnclosedElements());
+		for (ExecutableElement c : constructors) {
+			if (c.getParameters().isEmpty() && !c.getModifiers().contains(Modifier.PRIVATE)) {
+				return null;
+			}
+		}
+		return "no accessible no-arg constructor";
+	}
+
+	/**
+	 * 按运行时的顺序收集注解列：先字段后方法
+	 */
+	private String collect(TypeElement type, TypeElement excelField, List<Column> columns) {
+		for (VariableElement f : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+			AnnotationMirror mirror = getAnnotation(f, excelField);
+			if (mirror == null) {
+				continue;
+			}
+			String name = f.getSimpleName().toString();
+			String cap = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+			ExecutableElement getter = findMethod(type, "get" + cap, null);
+			if (getter == null) {
+				getter = findMethod(type, "is" + cap, null);
+			}
+			ExecutableElement setter = findMethod(type, "set" + cap, f.asType());
+			if (setter == null) {
+				setter = findSetter(type, "set" + cap);
+			}
+			String reason = addColumn(columns, type, mirror, name, f.asType(), getter, setter);
+			if (reason != null) {
+				return reason;
+			}
+		}
+		for (ExecutableElement m : ElementFilter.methodsIn(type.getEnclosedElements())) {
+			AnnotationMirror mirror = getAnnotation(m, excelField);
+			if (mirror == null) {
+				continue;
+			}
+			String name = m.getSimpleName().toString();
+			TypeMirror valType;
+			if (name.startsWith("get")) {
+				valType = m.getReturnType();
+			} else if (name.startsWith("set") && m.getParameters().size() == 1) {
+				valType = m.getParameters().get(0).asType();
+			} else {
+				return "method " + name + " is neither getter nor setter";
+			}
+			ExecutableElement getter = m.getParameters().isEmpty() ? m : null;
+			String setterName = name.startsWith("get") ? "set" + name.substring(3) : name;
+			String reason = addColumn(columns, type, mirror, name, valType, getter, findMethod(type, setterName, valType));
+			if (reason != null) {
+				return reason;
+			}
+		}
+		return null;
+	}
+
+	private String addColumn(List<Column> columns, TypeElement type, AnnotationMirror mirror, String name, TypeMirror valType,
+			ExecutableElement getter, ExecutableElement setter) {
+		if (getter != null && !isAccessible(getter, type)) {
+			return "getter of " + name + " is not accessible";
+		}
+		if (setter != null && !isAccessible(setter, type)) {
+			return "setter of " + name + " is not accessible";
+		}
+		// 生成的类中写出值类型的类字面量和setter参数的强制转换
+		if (!isAccessible(valType, type)) {
+			return "type of " + name + " is not accessible";
+		}
+		if (setter != null && !isAccessible(setter.getParameters().get(0).asType(), type)) {
+			return "setter parameter of " + name + " is not accessible";
+		}
+		Column column = new Column();
+		column.name = name;
+		column.valType = valType;
+		column.getter = getter;
+		column.setter = setter;
+		for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : processingEnv.getElementUtils()
+				.getElementValuesWithDefaults(mirror).entrySet()) {
+			String key = entry.getKey().getSimpleName().toString();
+			Object value = entry.getValue().getValue();
+			if ("sort".equals(key)) {
+				column.sort = (Integer) value;
+			} else if ("title".equals(key)) {
+				column.title = (String) value;
+			} else if ("type".equals(key)) {
+				column.type = ((VariableElement) value).getSimpleName().toString();
+			} else if ("align".equals(key)) {
+				column.align = ((VariableElement) value).getSimpleName().toString();
+			} else if ("format".equals(key)) {
+				column.format = (String) value;
+			} else if ("handler".equals(key)) {
+				column.handler = (TypeMirror) value;
+			}
+		}
+		TypeElement handler = (TypeElement) processingEnv.getTypeUtils().asElement(column.handler);
+		if (handler.getQualifiedName().contentEquals(VALUE_HANDLER)) {
+			column.handler = null;
+		} else if (!isAccessible(column.handler, type)) {
+			// 注解值写为处理器的类字面量
+			return "handler of " + name + " is not accessible";
+		} else {
+			column.newHandler = checkType(handler) == null && isAccessible(handler, type);
+		}
+		columns.add(column);
+		return null;
+	}
+
+	private static AnnotationMirror getAnnotation(Element e, TypeElement annotation) {
+		for (AnnotationMirror mirror : e.getAnnotationMirrors()) {
+			if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().equals(annotation.getQualifiedName())) {
+				return mirror;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * 沿继承链查找方法
+	 * 
+	 * @param paramType
+	 *            单个参数的类型（按擦除后比较），为null时查找无参方法
+	 */
+	private ExecutableElement findMethod(TypeElement type, String name, TypeMirror paramType) {
+		for (TypeElement c = type; c != null && !c.getQualifiedName().contentEquals("java.lang.Object"); c = superclass(c)) {
+			for (ExecutableElement m : ElementFilter.methodsIn(c.getEnclosedElements())) {
+				if (!m.getSimpleName().contentEquals(name)) {
+					continue;
+				}
+				if (paramType == null ? m.getParameters().isEmpty() : m.getParameters().size() == 1
+						&& processingEnv.getTypeUtils().isSameType(erasure(m.getParameters().get(0).asType()), erasure(paramType))) {
+					return m;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * 沿继承链查找名称匹配的单参数方法
+	 */
+	private ExecutableElement findSetter(TypeElement type, String name) {
+		for (TypeElement c = type; c != null && !c.getQualifiedName().contentEquals("java.lang.Object"); c = superclass(c)) {
+			for (ExecutableElement m : ElementFilter.methodsIn(c.getEnclosedElements())) {
+				if (m.getSimpleName().contentEquals(name) && m.getParameters().size() == 1) {
+					return m;
+				}
+			}
+		}
+		return null;
+	}
+
+	private TypeElement superclass(TypeElement type) {
+		TypeMirror sup = type.getSuperclass();
+		return sup.getKind() == TypeKind.DECLARED ? (TypeElement) ((DeclaredType) sup).asElement() : null;
+	}
+
+	/**
+	 * 生成的类（与实体类同包）能否访问
+	 */
+	private boolean isAccessible(Element e, TypeElement from) {
+		if (e.getModifiers().contains(Modifier.PRIVATE)) {
+			return false;
+		}
+		return e.getModifiers().contains(Modifier.PUBLIC) || getPackage(e).equals(getPackage(from));
+	}
+
+	/**
+	 * 生成的类能否引用该类型（数组按元素类型，嵌套类须各层外部类均可访问）
+	 */
+	private boolean isAccessible(TypeMirror t, TypeElement from) {
+		TypeMirror type = erasure(t);
+		while (type.getKind() == TypeKind.ARRAY) {
+			type = ((ArrayType) type).getComponentType();
+		}
+		if (type.getKind() != TypeKind.DECLARED) {
+			return true;
+		}
+		for (Element e = ((DeclaredType) type).asElement(); e instanceof TypeElement; e = e.getEnclosingElement()) {
+			if (!isAccessible(e, from)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private PackageElement getPackage(Element e) {
+		return processingEnv.getElementUtils().getPackageOf(e);
+	}
+
+	private TypeMirror erasure(TypeMirror type) {
+		return processingEnv.getTypeUtils().erasure(type);
+	}
+
+	/**
+	 * 强制转换使用的类型名（基本类型转为包装类型）
+	 */
+	private String castName(TypeMirror type) {
+		if (type.getKind().isPrimitive()) {
+			return processingEnv.getTypeUtils().boxedClass((PrimitiveType) type).getQualifiedName().toString();
+		}
+		return erasure(type).toString();
+	}
+
+	private void write(Writer out, String pkg, String simpleName, String typeName, List<Column> columns) throws IOException {
+		if (!pkg.isEmpty()) {
+			out.write("package " + pkg + ";\n\n");
+		}
+		out.write("/**\n");
+		out.write(" * {@link " + typeName + "}的@ExcelField映射（由ExcelMapperProcessor生成）\n");
+		out.write(" */\n");
+		out.write("@SuppressWarnings({ \"rawtypes\", \"unchecked\" })\n");
+		out.write("public final class " + simpleName + " extends " + EXCEL_MAPPER + "<" + typeName + "> {\n\n");
+		out.write("\t@Override\n");
+		out.write("\tpublic Class<" + typeName + "> getType() {\n");
+		out.write("\t\treturn " + typeName + ".class;\n");
+		out.write("\t}\n\n");
+		out.write("\t@Override\n");
+		out.write("\tpublic " + typeName + " newInstance() {\n");
+		out.write("\t\treturn new " + typeName + "();\n");
+		out.write("\t}\n\n");
+		out.write("\t@Override\n");
+		out.write("\tpublic java.util.List<Column<" + typeName + ">> getColumns() {\n");
+		out.write("\t\tjava.util.List<Column<" + typeName + ">> columns = new java.util.ArrayList<Column<" + typeName + ">>();\n");
+		for (Column column : columns) {
+			out.write("\t\tcolumns.add(new Column<" + typeName + ">(field(" + column.sort + ", " + literal(column.title) + ", "
+					+ EXCEL_FIELD + ".ExAct." + column.type + ", " + EXCEL_FIELD + ".ExAlign." + column.align + ", "
+					+ literal(column.format) + ", " + (column.handler == null ? VALUE_HANDLER : erasure(column.handler).toString())
+					+ ".class), " + erasure(column.valType) + ".class) {\n");
+			out.write("\t\t\t@Override\n");
+			out.write("\t\t\tpublic Object get(" + typeName + " bean) {\n");
+			if (column.getter != null) {
+				out.write("\t\t\t\treturn bean." + column.getter.getSimpleName() + "();\n");
+			} else {
+				out.write("\t\t\t\tthrow new IllegalArgumentException(\"Could not find getter [" + column.name + "] on target [\" + bean + \"]\");\n");
+			}
+			out.write("\t\t\t}\n\n");
+			out.write("\t\t\t@Override\n");
+			out.write("\t\t\tpublic void set(" + typeName + " bean, Object val) {\n");
+			if (column.setter != null) {
+				out.write("\t\t\t\tbean." + column.setter.getSimpleName() + "((" + castName(column.setter.getParameters().get(0).asType())
+						+ ") val);\n");
+			} else {
+				out.write("\t\t\t\tthrow new IllegalArgumentException(\"Could not find setter [" + column.name + "] on target [\" + bean + \"]\");\n");
+			}
+			out.write("\t\t\t}\n");
+			if (column.newHandler) {
+				out.write("\n\t\t\t@Override\n");
+				out.write("\t\t\tpublic " + VALUE_HANDLER + " newHandler() {\n");
+				out.write("\t\t\t\treturn new " + erasure(column.handler) + "();\n");
+				out.write("\t\t\t}\n");
+			}
+			out.write("\t\t});\n");
+		}
+		out.write("\t\treturn columns;\n");
+		out.write("\t}\n\n");
+		out.write("}\n");
+	}
+
+	/**
+	 * 字符串常量（非ASCII字符转义，与源文件编码无关）；
+	 * 控制字符不能用Unicode转义（javac在词法分析前替换，换行会截断字符串），使用“\n”等转义或八进制转义
+	 */
+	private static String literal(String s) {
+		StringBuilder sb = new StringBuilder("\"");
+		for (int i = 0; i < s.length(); i++) {
+			char ch = s.charAt(i);
+			if (ch == '"' || ch == '\\') {
+				sb.append('\\').append(ch);
+			} else if (ch == '\n') {
+				sb.append("\\n");
+			} else if (ch == '\r') {
+				sb.append("\\r");
+			} else if (ch == '\t') {
+				sb.append("\\t");
+			} else if (ch < 0x20) {
+				sb.append(String.format("\\%03o", (int) ch));
+			} else if (ch > 0x7e) {
+				sb.append(String.format("\\u%04x", (int) ch));
+			} else {
+				sb.append(ch);
+			}
+		}
+		return sb.append('"').toString();
+	}
+
+	/**
+	 * 一个注解列
+	 */
+	private static final class Column {
+
+		String name;
+
+		TypeMirror valType;
+
+		ExecutableElement getter;
+
+		ExecutableElement setter;
+
+		int sort;
+
+		String title;
+
+		String type;
+
+		String align;
+
+		String format;
+
+		/**
+		 * 值处理器类型，未配置时为null
+		 */
+		TypeMirror handler;
+
+		/**
+		 * 能否直接调用值处理器的构造函数
+		 */
+		boolean newHandler;
+
+	}
+
+}
@@ -0,0 +1,218 @@
+package cn.brent.commons.office.processor;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import cn.brent.commons.office.excel.ExcelField.ExAlign;
+import cn.brent.commons.office.excel.ExcelMapper;
+import cn.brent.commons.office.excel.ExcelMapper.Column;
+import cn.brent.commons.office.excel.handler.NumToStrHandler;
+
+public class ExcelMapperProcessorTest {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private File dir;
+
+	private DiagnosticCollector<JavaFileObject> diagnostics;
+
+	@Before
+	public void setUp() throws IOException {
+		dir = Files.createTempDirectory("processor").toFile();
+		diagnostics = new DiagnosticCollector<JavaFileObject>();
+	}
+
+	@After
+	public void tearDown() {
+		delete(dir);
+	}
+
+	@Test
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public void testGenerate() throws Exception {
+		source("dto/OrderVo.java", "package dto;\n"
+				+ "import cn.brent.commons.office.excel.ExcelField;\n"
+				+ "import cn.brent.commons.office.excel.handler.NumToStrHandler;\n"
+				+ "public class OrderVo {\n"
+				+ "	@ExcelField(sort = 0, title = \"商家号\", align = ExcelField.ExAlign.right, handler = NumToStrHandler.class)\n"
+				+ "	private String merId;\n"
+				+ "	@ExcelField(sort = 1, title = \"数量\")\n"
+				+ "	private int count;\n"
+				+ "	public String getMerId() { return merId; }\n"
+				+ "	public void setMerId(String merId) { this.merId = merId; }\n"
+				+ "	public int getCount() { return count; }\n"
+				+ "	public void setCount(int count) { this.count = count; }\n"
+				+ "}\n");
+		Assert.assertTrue(diagnostics.getDiagnostics().toString(), compile());
+
+		String generated = new String(Files.readAllBytes(new File(dir, "gen/dto/OrderVo_ExcelMapper.java").toPath()), UTF8);
+		Assert.assertTrue(generated.contains("public final class OrderVo_ExcelMapper extends cn.brent.commons.office.excel.ExcelMapper<dto.OrderVo>"));
+		Assert.assertTrue(generated.contains("return new cn.brent.commons.office.excel.handler.NumToStrHandler();"));
+
+		URLClassLoader loader = new URLClassLoader(new URL[] { new File(dir, "classes").toURI().toURL() }, getClass().getClassLoader());
+		try {
+			ExcelMapper mapper = (ExcelMapper) loader.loadClass("dto.OrderVo_ExcelMapper").newInstance();
+			Assert.assertEquals("dto.OrderVo", mapper.getType().getName());
+			List<Column> columns = mapper.getColumns();
+			Assert.assertEquals(2, columns.size());
+			Assert.assertEquals("商家号", columns.get(0).getField().title());
+			Assert.assertEquals(ExAlign.right, columns.get(0).getField().align());
+			Assert.assertEquals(String.class, columns.get(0).getType());
+			Assert.assertTrue(columns.get(0).newHandler() instanceof NumToStrHandler);
+			Assert.assertEquals(int.class, columns.get(1).getType());
+			Assert.assertNull(columns.get(1).newHandler());
+
+			Object vo = mapper.newInstance();
+			columns.get(0).set(vo, "1001");
+			columns.get(1).set(vo, 3);
+			Assert.assertEquals("1001", columns.get(0).get(vo));
+			Assert.assertEquals(3, columns.get(1).get(vo));
+		} finally {
+			loader.close();
+		}
+	}
+
+	@Test
+	public void testSkipExisting() throws Exception {
+		source("dto/ItemVo.java", "package dto;\n"
+				+ "import cn.brent.commons.office.excel.ExcelField;\n"
+				+ "public class ItemVo {\n"
+				+ "	@ExcelField(sort = 0, title = \"名称\")\n"
+				+ "	private String name;\n"
+				+ "	public String getName() { return name; }\n"
+				+ "	public void setName(String name) { this.name = name; }\n"
+				+ "}\n");
+		// 手写的映射
+		source("dto/ItemVo_ExcelMapper.java", "package dto;\n"
+				+ "public class ItemVo_ExcelMapper extends cn.brent.commons.office.excel.ExcelMapper<ItemVo> {\n"
+				+ "	public Class<ItemVo> getType() { return ItemVo.class; }\n"
+				+ "	public ItemVo newInstance() { return new ItemVo(); }\n"
+				+ "	public java.util.List<Column<ItemVo>> getColumns() { return new java.util.ArrayList<Column<ItemVo>>(); }\n"
+				+ "}\n");
+		Assert.assertTrue(diagnostics.getDiagnostics().toString(), compile());
+		Assert.assertFalse(new File(dir, "gen/dto/ItemVo_ExcelMapper.java").exists());
+		boolean noted = false;
+		for (Diagnostic<? extends JavaFileObject> d : diagnostics.getDiagnostics()) {
+			noted |= d.getKind() == Diagnostic.Kind.NOTE && d.getMessage(null).contains("already exists");
+		}
+		Assert.assertTrue(noted);
+	}
+
+	@Test
+	@SuppressWarnings("rawtypes")
+	public void testMultiLineTitle() throws Exception {
+		source("dto/NoteVo.java", "package dto;\n"
+				+ "import cn.brent.commons.office.excel.ExcelField;\n"
+				+ "public class NoteVo {\n"
+				+ "	@ExcelField(sort = 0, title = \"备注\\n(选填)\\t\\r\\u0001\", format = \"\\\"@\\\"\")\n"
+				+ "	private String note;\n"
+				+ "	public String getNote() { return note; }\n"
+				+ "	public void setNote(String note) { this.note = note; }\n"
+				+ "}\n");
+		Assert.assertTrue(diagnostics.getDiagnostics().toString(), compile());
+		URLClassLoader loader = new URLClassLoader(new URL[] { new File(dir, "classes").toURI().toURL() }, getClass().getClassLoader());
+		try {
+			ExcelMapper mapper = (ExcelMapper) loader.loadClass("dto.NoteVo_ExcelMapper").newInstance();
+			Column column = (Column) mapper.getColumns().get(0);
+			Assert.assertEquals("备注\n(选填)\t\r\001", column.getField().title());
+			Assert.assertEquals("\"@\"", column.getField().format());
+		} finally {
+			loader.close();
+		}
+	}
+
+	@Test
+	public void testInaccessibleTypes() throws Exception {
+		source("dto/StatusVo.java", "package dto;\n"
+				+ "import cn.brent.commons.office.excel.ExcelField;\n"
+				+ "public class StatusVo {\n"
+				+ "	private enum St { A, B }\n"
+				+ "	@ExcelField(sort = 0, title = \"状态\")\n"
+				+ "	private St status;\n"
+				+ "	public St getStatus() { return status; }\n"
+				+ "	public void setStatus(St status) { this.status = status; }\n"
+				+ "}\n");
+		source("dto/HandledVo.java", "package dto;\n"
+				+ "import cn.brent.commons.office.excel.ExcelField;\n"
+				+ "import cn.brent.commons.office.excel.handler.NumToStrHandler;\n"
+				+ "public class HandledVo {\n"
+				+ "	private static class H extends NumToStrHandler {\n"
+				+ "	}\n"
+				+ "	@ExcelField(sort = 0, title = \"商家号\", handler = H.class)\n"
+				+ "	private String merId;\n"
+				+ "	public String getMerId() { return merId; }\n"
+				+ "	public void setMerId(String merId) { this.merId = merId; }\n"
+				+ "}\n");
+		// 不生成映射，运行时使用反射
+		Assert.assertTrue(diagnostics.getDiagnostics().toString(), compile());
+		Assert.assertFalse(new File(dir, "gen/dto/StatusVo_ExcelMapper.java").exists());
+		Assert.assertFalse(new File(dir, "gen/dto/HandledVo_ExcelMapper.java").exists());
+	}
+
+	private void source(String path, String content) throws IOException {
+		File file = new File(dir, "src/" + path);
+		file.getParentFile().mkdirs();
+		Files.write(file.toPath(), content.getBytes(UTF8));
+	}
+
+	/**
+	 * 用ExcelMapperProcessor编译src下的源文件，生成的源文件在gen下，类在classes下
+	 */
+	private boolean compile() throws IOException {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		File gen = new File(dir, "gen");
+		File classes = new File(dir, "classes");
+		gen.mkdirs();
+		classes.mkdirs();
+		List<File> files = new ArrayList<File>();
+		collect(new File(dir, "src"), files);
+		StandardJavaFileManager fm = compiler.getStandardFileManager(diagnostics, null, UTF8);
+		try {
+			List<String> options = Arrays.asList("-classpath", System.getProperty("java.class.path"), "-processor",
+					ExcelMapperProcessor.class.getName(), "-s", gen.getPath(), "-d", classes.getPath(), "-encoding", "UTF-8");
+			return compiler.getTask(null, fm, diagnostics, options, null, fm.getJavaFileObjectsFromFiles(files)).call();
+		} finally {
+			fm.close();
+		}
+	}
+
+	private static void collect(File dir, List<File> files) {
+		for (File f : dir.listFiles()) {
+			if (f.isDirectory()) {
+				collect(f, files);
+			} else {
+				files.add(f);
+			}
+		}
+	}
+
+	private static void delete(File f) {
+		File[] children = f.listFiles();
+		if (children != null) {
+			for (File c : children) {
+				delete(c);
+			}
+		}
+		f.delete();
+	}
+
+}
@@ -0,0 +1,12 @@
+package cn.brent.commons.office.excel;
+
+import java.util.List;
+
+/**
+ * 分批导入回调
+ */
+public interface BatchHandler<T> {
+
+	void handle(List<T> batch);
+	
+}
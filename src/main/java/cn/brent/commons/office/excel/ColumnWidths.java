@@ -0,0 +1,90 @@
+package cn.brent.commons.office.excel;
+
+import java.util.List;
+
+import org.apache.poi.ss.usermodel.Sheet;
+
+/**
+ * 列宽估算
+ *
+ * 按表头和写入的数据记录各列最长的显示长度（中文等全角字符计2），不使用AWT字体度量；
+ * 前{@link #SAMPLE_ALL}行全部统计，之后每{@link #SAMPLE_STEP}行统计一行
+ */
+final class ColumnWidths {
+
+	static final int SAMPLE_ALL = 1000;
+
+	static final int SAMPLE_STEP = 10;
+
+	/**
+	 * 最小列宽（1/256字符）
+	 */
+	private static final int MIN_WIDTH = 3000;
+
+	/**
+	 * 最大列宽（Excel上限255字符）
+	 */
+	private static final int MAX_WIDTH = 255 * 256;
+
+	/**
+	 * 各列最长的显示长度
+	 */
+	private final int[] lengths;
+
+	private long rows;
+
+	ColumnWidths(List<String> headers) {
+		lengths = new int[headers.size()];
+		for (int i = 0; i < lengths.length; i++) {
+			lengths[i] = displayLength(headers.get(i));
+		}
+	}
+
+	/**
+	 * 是否统计下一行
+	 */
+	boolean sample() {
+		return rows++ < SAMPLE_ALL || rows % SAMPLE_STEP == 0;
+	}
+
+	void observe(int column, int length) {
+		if (column < lengths.length && length > lengths[column]) {
+			lengths[column] = length;
+		}
+	}
+
+	/**
+	 * 列宽（1/256字符）
+	 */
+	int getWidth(int column) {
+		return Math.max(MIN_WIDTH, Math.min(MAX_WIDTH, (lengths[column] + 2) * 256));
+	}
+
+	void apply(Sheet sheet) {
+		for (int i = 0; i < lengths.length; i++) {
+			sheet.setColumnWidth(i, getWidth(i));
+		}
+	}
+
+	/**
+	 * 文本的显示长度（多行文本取最长的一行）
+	 */
+	static int displayLength(String s) {
+		if (s == null) {
+			return 0;
+		}
+		int max = 0;
+		int length = 0;
+		for (int i = 0; i < s.length(); i++) {
+			char ch = s.charAt(i);
+			if (ch == '\n') {
+				max = Math.max(max, length);
+				length = 0;
+			} else {
+				length += ch < 0x1100 ? 1 : 2;
+			}
+		}
+		return Math.max(max, length);
+	}
+
+}
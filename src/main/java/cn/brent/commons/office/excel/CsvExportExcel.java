@@ -0,0 +1,194 @@
+package cn.brent.commons.office.excel;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import cn.brent.commons.office.excel.handler.ValueHandler;
+
+/**
+ * 导出CSV/TSV文件
+ *
+ * 使用与{@link ExportExcel}相同的注解映射和ValueHandler，首行为表头；日期按注解的format（默认“yyyy-MM-dd”）格式化，
+ * 整数值的小数不输出“.0”，浮点数不使用科学计数法；含分隔符、引号或换行的字段加双引号。边添加边写出，不保留数据
+ */
+public class CsvExportExcel<T> {
+
+	private Logger log = LoggerFactory.getLogger(getClass());
+
+	private static final String DEFAULT_DATE_FORMAT = "yyyy-MM-dd";
+
+	private final Writer out;
+
+	private final char separator;
+
+	/**
+	 * 导出列
+	 */
+	private final List<ExcelColumn> columns;
+
+	@SuppressWarnings("rawtypes")
+	private final ValueHandler[] handlers;
+
+	/**
+	 * 各列的日期格式
+	 */
+	private final SimpleDateFormat[] dateFormats;
+
+	/**
+	 * 构造函数
+	 *
+	 * @param cls
+	 *            实体对象，通过annotation.ExportField获取标题
+	 * @param separator
+	 *            分隔符，如{@link CsvImportExcel#CSV}、{@link CsvImportExcel#TSV}
+	 */
+	public CsvExportExcel(Class<?> cls, Writer out, char separator) {
+		this.out = out instanceof BufferedWriter ? out : new BufferedWriter(out, 64 * 1024);
+		this.separator = separator;
+		this.columns = ExcelMapping.of(cls).getExportColumns();
+		this.handlers = ExcelColumn.newHandlers(columns);
+		this.dateFormats = new SimpleDateFormat[columns.size()];
+		for (int i = 0; i < columns.size(); i++) {
+			String format = columns.get(i).getField().format();
+			dateFormats[i] = new SimpleDateFormat(StringUtils.isEmpty(format) ? DEFAULT_DATE_FORMAT : format);
+		}
+		try {
+			for (int i = 0; i < columns.size(); i++) {
+				if (i > 0) {
+					this.out.write(separator);
+				}
+				writeField(columns.get(i).getTitle());
+			}
+			this.out.write("\r\n");
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * @param charset
+	 *            字符集，如“UTF-8”、“GBK”
+	 */
+	public CsvExportExcel(Class<?> cls, OutputStream os, String charset, char separator) {
+		this(cls, writer(os, charset), separator);
+	}
+
+	private static Writer writer(OutputStream os, String charset) {
+		try {
+			return new OutputStreamWriter(os, charset);
+		} catch (UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * 添加数据（通过annotation.ExportField添加数据）
+	 */
+	public void setDataList(List<T> list) {
+		write(list.iterator());
+	}
+
+	/**
+	 * 逐行拉取数据并写出
+	 */
+	public void write(Iterator<? extends T> data) {
+		try {
+			while (data.hasNext()) {
+				writeRow(data.next());
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		} finally {
+			ExportQueue.closeSource(data);
+		}
+	}
+
+	private void writeRow(T e) throws IOException {
+		Object[] values = ExcelColumn.exportValues(columns, handlers, e, log);
+		for (int i = 0; i < values.length; i++) {
+			Object val = values[i];
+			if (i > 0) {
+				out.write(separator);
+			}
+			if (val instanceof Double || val instanceof Float) {
+				out.write(formatDecimal((Number) val));
+			} else if (val instanceof Date) {
+				out.write(dateFormats[i].format((Date) val));
+			} else if (val != null) {
+				writeField(val.toString());
+			}
+		}
+		out.write("\r\n");
+	}
+
+	/**
+	 * 浮点数不用科学计数法；Float按其十进制表示输出，不扩展为double的尾数
+	 */
+	private static String formatDecimal(Number val) {
+		if (val instanceof Float) {
+			float f = val.floatValue();
+			if (Float.isNaN(f) || Float.isInfinite(f)) {
+				return Float.toString(f);
+			}
+			return plain(new BigDecimal(Float.toString(f)));
+		}
+		double d = val.doubleValue();
+		if (Double.isNaN(d) || Double.isInfinite(d)) {
+			return Double.toString(d);
+		}
+		return plain(new BigDecimal(Double.toString(d)));
+	}
+
+	private static String plain(BigDecimal d) {
+		if (d.signum() == 0) {
+			return "0";
+		}
+		return d.stripTrailingZeros().toPlainString();
+	}
+
+	private void writeField(String s) throws IOException {
+		boolean quote = false;
+		for (int i = 0; i < s.length() && !quote; i++) {
+			char ch = s.charAt(i);
+			quote = ch == separator || ch == '"' || ch == '\r' || ch == '\n';
+		}
+		if (!quote) {
+			out.write(s);
+			return;
+		}
+		out.write('"');
+		for (int i = 0; i < s.length(); i++) {
+			char ch = s.charAt(i);
+			if (ch == '"') {
+				out.write('"');
+			}
+			out.write(ch);
+		}
+		out.write('"');
+	}
+
+	/**
+	 * 将缓冲的数据写出（不关闭输出流）
+	 */
+	public void flush() {
+		try {
+			out.flush();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+}
@@ -0,0 +1,129 @@
+package cn.brent.commons.office.excel;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 导入CSV/TSV文件
+ *
+ * 使用与{@link ImportExcel}相同的注解映射、类型转换、ValueHandler和BlankRowFilter，字段均为文本；
+ * 记录序号从0开始（空行不计），headerNum及其之前的记录不作为数据。数据流只能读取一次
+ */
+public class CsvImportExcel<T> extends ImportExcel<T> {
+
+	/**
+	 * 逗号分隔
+	 */
+	public static final char CSV = ',';
+
+	/**
+	 * 制表符分隔
+	 */
+	public static final char TSV = '\t';
+
+	private final CsvParser parser;
+
+	/**
+	 * @param separator
+	 *            分隔符，如{@link #CSV}、{@link #TSV}
+	 */
+	public CsvImportExcel(Class<T> clz, Reader reader, char separator, int headerNum) {
+		super(clz, false, headerNum);
+		if (reader == null) {
+			throw new RuntimeException("Reader is null");
+		}
+		this.parser = new CsvParser(reader, separator);
+		log.debug("Initialize success.");
+	}
+
+	/**
+	 * @param charset
+	 *            字符集，如“UTF-8”、“GBK”
+	 * @param separator
+	 *            分隔符，如{@link #CSV}、{@link #TSV}
+	 */
+	public CsvImportExcel(Class<T> clz, InputStream is, String charset, char separator, int headerNum) {
+		this(clz, reader(is, charset), separator, headerNum);
+	}
+
+	private static Reader reader(InputStream is, String charset) {
+		if (is == null) {
+			throw new RuntimeException("InputStream is null");
+		}
+		try {
+			return new InputStreamReader(is, charset);
+		} catch (UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	RowReader openReader() {
+		bindColumns();
+		return new CsvRowReader(getColumnMask());
+	}
+
+	@Override
+	List<String> readHeader() {
+		List<String> header = new ArrayList<String>();
+		try {
+			while (parser.getRecordNum() < headerNum && parser.next(null)) {
+				if (parser.getRecordNum() == headerNum) {
+					for (int i = 0; i < parser.getCount(); i++) {
+						header.add(headerText(parser.get(i)));
+					}
+				}
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		return header;
+	}
+
+	@Override
+	public void close() throws IOException {
+		super.close();
+		parser.close();
+	}
+
+	private class CsvRowReader implements RowReader {
+
+		private final boolean[] columns;
+
+		CsvRowReader(boolean[] columns) {
+			this.columns = columns;
+		}
+
+		@Override
+		public boolean next() throws IOException {
+			while (parser.next(columns)) {
+				if (parser.getRecordNum() > headerNum) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public int getRowNum() {
+			return parser.getRecordNum();
+		}
+
+		@Override
+		public Object getValue(int column) {
+			return parser.get(column);
+		}
+
+		@Override
+		public void close() throws IOException {
+			parser.close();
+		}
+
+	}
+
+}
@@ -0,0 +1,193 @@
+package cn.brent.commons.office.excel;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * CSV/TSV解析器
+ *
+ * 在字符缓冲区上逐字符扫描（RFC 4180：双引号包围的字段可含分隔符、换行，""表示一个引号），
+ * 未包含引号且不跨缓冲区的字段直接由缓冲区创建字符串；空行忽略，不计入记录序号
+ */
+final class CsvParser implements Closeable {
+
+	private static final int SEPARATOR = 0;
+
+	private static final int END_OF_LINE = 1;
+
+	private static final int END_OF_FILE = 2;
+
+	private final Reader in;
+
+	private final char separator;
+
+	private final char[] buf = new char[8192];
+
+	private int pos;
+
+	private int limit;
+
+	private final StringBuilder sb = new StringBuilder();
+
+	private String[] fields = new String[16];
+
+	private int count;
+
+	/**
+	 * 当前记录的序号（从0开始）
+	 */
+	private int recordNum = -1;
+
+	CsvParser(Reader in, char separator) {
+		this.in = in;
+		this.separator = separator;
+	}
+
+	/**
+	 * 读取下一条记录
+	 *
+	 * @param columns
+	 *            需要读取的列（下标为列号），为null时读取全部列；其余列只扫描不创建字符串
+	 * @return 没有更多记录时返回false
+	 */
+	boolean next(boolean[] columns) throws IOException {
+		count = 0;
+		while (true) {
+			if (!fill()) {
+				return false;
+			}
+			char ch = buf[pos];
+			if (ch == '\uFEFF' && recordNum < 0) {
+				pos++;
+			} else if (ch == '\r' || ch == '\n') {
+				pos++;
+			} else {
+				break;
+			}
+		}
+		recordNum++;
+		int end;
+		do {
+			boolean keep = columns == null || (count < columns.length && columns[count]);
+			if (count == fields.length) {
+				fields = Arrays.copyOf(fields, fields.length * 2);
+			}
+			end = readField(keep);
+		} while (end == SEPARATOR);
+		return true;
+	}
+
+	/**
+	 * 读取一个字段，返回字段的结束方式
+	 */
+	private int readField(boolean keep) throws IOException {
+		sb.setLength(0);
+		boolean quoted = false;
+		if (fill() && buf[pos] == '"') {
+			quoted = true;
+			pos++;
+			while (fill()) {
+				char ch = buf[pos++];
+				if (ch == '"') {
+					if (fill() && buf[pos] == '"') {
+						pos++;
+					} else {
+						break;
+					}
+				}
+				if (keep) {
+					sb.append(ch);
+				}
+			}
+		}
+		int start = pos;
+		int end = END_OF_FILE;
+		int stop = -1;
+		while (true) {
+			if (pos >= limit) {
+				if (keep) {
+					sb.append(buf, start, pos - start);
+				}
+				if (!fill()) {
+					break;
+				}
+				start = pos;
+				continue;
+			}
+			char ch = buf[pos];
+			if (ch == separator || ch == '\n' || ch == '\r') {
+				stop = pos++;
+				if (ch == separator) {
+					end = SEPARATOR;
+				} else {
+					end = END_OF_LINE;
+					if (ch == '\r' && fill() && buf[pos] == '\n') {
+						pos++;
+					}
+				}
+				break;
+			}
+			pos++;
+		}
+		String value = null;
+		if (keep) {
+			if (stop >= 0 && sb.length() == 0 && !quoted) {
+				// 不跨缓冲区的字段
+				value = new String(buf, start, stop - start);
+			} else {
+				if (stop >= 0) {
+					sb.append(buf, start, stop - start);
+				}
+				value = sb.toString();
+			}
+		}
+		fields[count++] = value;
+		return end;
+	}
+
+	/**
+	 * 保证缓冲区中有未读字符
+	 *
+	 * @return 已到文件末尾时返回false
+	 */
+	private boolean fill() throws IOException {
+		if (pos < limit) {
+			return true;
+		}
+		if (limit < 0) {
+			return false;
+		}
+		limit = in.read(buf, 0, buf.length);
+		pos = 0;
+		while (limit == 0) {
+			limit = in.read(buf, 0, buf.length);
+		}
+		return limit > 0;
+	}
+
+	int getRecordNum() {
+		return recordNum;
+	}
+
+	/**
+	 * 当前记录的列数
+	 */
+	int getCount() {
+		return count;
+	}
+
+	/**
+	 * 字段值，未读取的列和超出记录的列返回null
+	 */
+	String get(int column) {
+		return column < count ? fields[column] : null;
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+}
@@ -0,0 +1,174 @@
+package cn.brent.commons.office.excel;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.List;
+
+import org.slf4j.Logger;
+
+import cn.brent.commons.office.excel.ExcelField.ExAlign;
+import cn.brent.commons.office.excel.handler.ValueHandler;
+
+/**
+ * 列描述（不可变），对应一个{@link ExcelField}注解的字段或方法
+ */
+final class ExcelColumn {
+
+	private final ExcelField field;
+
+	/**
+	 * 属性类型
+	 */
+	private final Class<?> valType;
+
+	private final PropertyAccessor accessor;
+
+	/**
+	 * 导入值转换器（按属性类型选定）
+	 */
+	private final ValueConverter converter;
+
+	/**
+	 * 值处理器类型，未配置时为null。列描述随映射全局缓存，只保存类型，
+	 * 处理器（不要求线程安全）由导入器、导出器或各转换线程通过{@link #newHandler()}各自创建
+	 */
+	@SuppressWarnings("rawtypes")
+	private final Class<? extends ValueHandler> handlerClass;
+
+	/**
+	 * 生成的列，用于直接创建值处理器，可为null
+	 */
+	private final ExcelMapper.Column<?> generated;
+
+	ExcelColumn(Class<?> cls, ExcelField ef, Field f) {
+		this(ef, f.getType(), PropertyAccessor.forField(cls, f), null);
+	}
+
+	ExcelColumn(Class<?> cls, ExcelField ef, Method m) {
+		this(ef, valType(m), PropertyAccessor.forMethod(cls, m, valType(m)), null);
+	}
+
+	/**
+	 * 编译期生成的列
+	 */
+	ExcelColumn(ExcelMapper.Column<?> column) {
+		this(column.getField(), column.getType(), PropertyAccessor.forColumn(column), column);
+	}
+
+	/**
+	 * @param generated
+	 *            生成的列，用于直接创建值处理器，可为null
+	 */
+	private ExcelColumn(ExcelField ef, Class<?> valType, PropertyAccessor accessor, ExcelMapper.Column<?> generated) {
+		this.field = ef;
+		this.valType = valType;
+		this.accessor = accessor;
+		this.converter = ValueConverter.forType(valType, ef.format());
+		this.handlerClass = ef.handler() == ValueHandler.class ? null : ef.handler();
+		this.generated = generated;
+		// fail fast on handlers that cannot be instantiated
+		newHandler();
+	}
+
+	/**
+	 * 为各列创建值处理器，下标与列对应，未配置的列为null
+	 */
+	@SuppressWarnings("rawtypes")
+	static ValueHandler[] newHandlers(List<ExcelColumn> columns) {
+		ValueHandler[] handlers = new ValueHandler[columns.size()];
+		for (int i = 0; i < handlers.length; i++) {
+			handlers[i] = columns.get(i).newHandler();
+		}
+		return handlers;
+	}
+
+	/**
+	 * 取一行的导出值：读取各列属性并经值处理器转换，读取失败的列记录日志后为空字符串
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	static Object[] exportValues(List<ExcelColumn> columns, ValueHandler[] handlers, Object e, Logger log) {
+		Object[] values = new Object[columns.size()];
+		for (int i = 0; i < values.length; i++) {
+			Object val = null;
+			// Get entity value
+			try {
+				val = columns.get(i).get(e);
+			} catch (Exception ex) {
+				// Failure to ignore
+				log.info(ex.toString());
+				val = "";
+			}
+			if (handlers[i] != null) {
+				val = handlers[i].expConvert(val);
+			}
+			values[i] = val;
+		}
+		return values;
+	}
+
+	private static Class<?> valType(Method m) {
+		if (m.getName().startsWith("get")) {
+			return m.getReturnType();
+		} else if (m.getName().startsWith("set")) {
+			return m.getParameterTypes()[0];
+		}
+		return Class.class;
+	}
+
+	public ExcelField getField() {
+		return field;
+	}
+
+	public int getSort() {
+		return field.sort();
+	}
+
+	public String getTitle() {
+		return field.title();
+	}
+
+	public ExAlign getAlign() {
+		return field.align();
+	}
+
+	public Class<?> getValType() {
+		return valType;
+	}
+
+	/**
+	 * 创建值处理器，未配置时返回null
+	 */
+	@SuppressWarnings("rawtypes")
+	ValueHandler newHandler() {
+		if (handlerClass == null) {
+			return null;
+		}
+		ValueHandler handler = generated == null ? null : generated.newHandler();
+		if (handler != null) {
+			return handler;
+		}
+		try {
+			return handlerClass.newInstance();
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * 将单元格值转换为属性类型
+	 * 
+	 * @return 空白单元格返回null，失败返回{@link ValueConverter#INVALID}
+	 */
+	Object convert(Object val) {
+		return converter.convert(val);
+	}
+
+	public Object get(Object bean) {
+		return accessor.get(bean);
+	}
+
+	public void set(Object bean, Object val) {
+		accessor.set(bean, val);
+	}
+
+}
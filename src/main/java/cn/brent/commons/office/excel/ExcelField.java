@@ -36,6 +36,11 @@ public @interface ExcelField {
 	 */
 	ExAlign align() default ExAlign.auto;
 	
+	/**
+	 * 导出单元格格式，如“yyyy-MM-dd HH:mm”、“#,##0.00”；为空时日期按“yyyy-MM-dd”导出
+	 */
+	String format() default "";
+	
 	/**
 	 * 字段值处理器
 	 * @return
@@ -0,0 +1,21 @@
+package cn.brent.commons.office.excel;
+
+/**
+ * 导入导出的指标监听器，在各阶段结束时回调
+ *
+ * 同一导入/导出器的阶段按顺序回调；统计值为累计值，回调中不应修改。
+ * 未设置监听器时不计时也不计数
+ */
+public interface ExcelListener {
+
+	/**
+	 * 阶段结束
+	 * 
+	 * @param phase
+	 *            结束的阶段
+	 * @param stats
+	 *            导入/导出器的累计统计
+	 */
+	void onPhaseEnd(ExcelPhase phase, ExcelStats stats);
+
+}
@@ -0,0 +1,146 @@
+package cn.brent.commons.office.excel;
+
+import java.lang.annotation.Annotation;
+import java.util.List;
+
+import cn.brent.commons.office.excel.ExcelField.ExAct;
+import cn.brent.commons.office.excel.ExcelField.ExAlign;
+import cn.brent.commons.office.excel.handler.ValueHandler;
+
+/**
+ * 编译期生成的映射
+ *
+ * 由注解处理器（brent-commons-office-processor）为带{@link ExcelField}注解的类生成“类名_ExcelMapper”，
+ * 直接调用构造函数和getter/setter；运行时存在该类时不再通过反射解析注解和访问属性，否则仍使用反射
+ */
+public abstract class ExcelMapper<T> {
+
+	/**
+	 * 生成类名的后缀（实体类的二进制名称+后缀）
+	 */
+	public static final String SUFFIX = "_ExcelMapper";
+
+	public abstract Class<T> getType();
+
+	public abstract T newInstance();
+
+	/**
+	 * 全部注解列（字段在前，方法在后，各按声明顺序）
+	 */
+	public abstract List<Column<T>> getColumns();
+
+	/**
+	 * 一个注解列
+	 */
+	public static abstract class Column<T> {
+
+		private final ExcelField field;
+
+		/**
+		 * 属性类型
+		 */
+		private final Class<?> type;
+
+		protected Column(ExcelField field, Class<?> type) {
+			this.field = field;
+			this.type = type;
+		}
+
+		public ExcelField getField() {
+			return field;
+		}
+
+		public Class<?> getType() {
+			return type;
+		}
+
+		public abstract Object get(T bean);
+
+		public abstract void set(T bean, Object val);
+
+		/**
+		 * 创建值处理器，返回null时按注解的handler通过反射创建
+		 */
+		@SuppressWarnings("rawtypes")
+		public ValueHandler newHandler() {
+			return null;
+		}
+
+	}
+
+	/**
+	 * 注解值
+	 */
+	@SuppressWarnings("rawtypes")
+	protected static ExcelField field(int sort, String title, ExAct type, ExAlign align, String format, Class<? extends ValueHandler> handler) {
+		return new FieldValue(sort, title, type, align, format, handler);
+	}
+
+	@SuppressWarnings("rawtypes")
+	private static final class FieldValue implements ExcelField {
+
+		private final int sort;
+
+		private final String title;
+
+		private final ExAct type;
+
+		private final ExAlign align;
+
+		private final String format;
+
+		private final Class<? extends ValueHandler> handler;
+
+		FieldValue(int sort, String title, ExAct type, ExAlign align, String format, Class<? extends ValueHandler> handler) {
+			this.sort = sort;
+			this.title = title;
+			this.type = type;
+			this.align = align;
+			this.format = format;
+			this.handler = handler;
+		}
+
+		@Override
+		public Class<? extends Annotation> annotationType() {
+			return ExcelField.class;
+		}
+
+		@Override
+		public int sort() {
+			return sort;
+		}
+
+		@Override
+		public String title() {
+			return title;
+		}
+
+		@Override
+		public ExAct type() {
+			return type;
+		}
+
+		@Override
+		public ExAlign align() {
+			return align;
+		}
+
+		@Override
+		public String format() {
+			return format;
+		}
+
+		@Override
+		public Class<? extends ValueHandler> handler() {
+			return handler;
+		}
+
+		@Override
+		public String toString() {
+			return "@" + ExcelField.class.getName() + "(sort=" + sort + ", title=" + title + ", type=" + type + ", align=" + align
+					+ ", format=" + format + ", handler=" + handler.getName() + ")";
+		}
+
+	}
+
+}
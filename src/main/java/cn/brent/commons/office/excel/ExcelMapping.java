@@ -0,0 +1,143 @@
+package cn.brent.commons.office.excel;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import cn.brent.commons.office.excel.ExcelField.ExAct;
+
+/**
+ * 实体类的{@link ExcelField}映射，按类全局缓存
+ *
+ * 缓存基于ClassValue，映射挂在实体类自身上：重新加载的类是新的Class对象，会重新解析，
+ * 旧的类加载器也不会被缓存引用而无法回收
+ */
+final class ExcelMapping {
+
+	private static final ClassValue<ExcelMapping> CACHE = new ClassValue<ExcelMapping>() {
+		@Override
+		protected ExcelMapping computeValue(Class<?> type) {
+			return new ExcelMapping(type);
+		}
+	};
+
+	/**
+	 * 导入列（按sort升序）
+	 */
+	private final List<ExcelColumn> importColumns;
+
+	/**
+	 * 导出列（按sort升序）
+	 */
+	private final List<ExcelColumn> exportColumns;
+
+	/**
+	 * 编译期生成的映射，没有时为null
+	 */
+	private final ExcelMapper<?> mapper;
+
+	private ExcelMapping(Class<?> cls) {
+		List<ExcelColumn> imp = new ArrayList<ExcelColumn>();
+		List<ExcelColumn> exp = new ArrayList<ExcelColumn>();
+		this.mapper = loadMapper(cls);
+		if (mapper != null) {
+			for (ExcelMapper.Column<?> column : mapper.getColumns()) {
+				add(new ExcelColumn(column), imp, exp);
+			}
+			this.importColumns = sort(imp);
+			this.exportColumns = sort(exp);
+			return;
+		}
+		// Get annotation field
+		for (Field f : cls.getDeclaredFields()) {
+			ExcelField ef = f.getAnnotation(ExcelField.class);
+			if (ef != null) {
+				add(new ExcelColumn(cls, ef, f), imp, exp);
+			}
+		}
+		// Get annotation method
+		for (Method m : cls.getDeclaredMethods()) {
+			ExcelField ef = m.getAnnotation(ExcelField.class);
+			if (ef != null) {
+				add(new ExcelColumn(cls, ef, m), imp, exp);
+			}
+		}
+		this.importColumns = sort(imp);
+		this.exportColumns = sort(exp);
+	}
+
+	/**
+	 * 加载注解处理器生成的“类名_ExcelMapper”
+	 */
+	private static ExcelMapper<?> loadMapper(Class<?> cls) {
+		Class<?> mapperClass;
+		try {
+			mapperClass = Class.forName(cls.getName() + ExcelMapper.SUFFIX, true, cls.getClassLoader());
+		} catch (ClassNotFoundException e) {
+			return null;
+		}
+		if (!ExcelMapper.class.isAssignableFrom(mapperClass)) {
+			return null;
+		}
+		try {
+			ExcelMapper<?> mapper = (ExcelMapper<?>) mapperClass.newInstance();
+			return mapper.getType() == cls ? mapper : null;
+		} catch (Exception e) {
+			throw new RuntimeException("Could not create " + mapperClass.getName(), e);
+		}
+	}
+
+	private static void add(ExcelColumn column, List<ExcelColumn> imp, List<ExcelColumn> exp) {
+		ExAct type = column.getField().type();
+		if (type != ExAct.exp) {
+			imp.add(column);
+		}
+		if (type != ExAct.imp) {
+			exp.add(column);
+		}
+	}
+
+	private static List<ExcelColumn> sort(List<ExcelColumn> list) {
+		// Field sorting
+		Collections.sort(list, new Comparator<ExcelColumn>() {
+			public int compare(ExcelColumn o1, ExcelColumn o2) {
+				return Integer.compare(o1.getSort(), o2.getSort());
+			};
+		});
+		return Collections.unmodifiableList(list);
+	}
+
+	/**
+	 * 获取实体类的映射
+	 */
+	static ExcelMapping of(Class<?> cls) {
+		return CACHE.get(cls);
+	}
+
+	/**
+	 * 创建实体对象
+	 */
+	@SuppressWarnings("unchecked")
+	<T> T newInstance(Class<T> cls) {
+		if (mapper != null) {
+			return (T) mapper.newInstance();
+		}
+		try {
+			return cls.newInstance();
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	List<ExcelColumn> getImportColumns() {
+		return importColumns;
+	}
+
+	List<ExcelColumn> getExportColumns() {
+		return exportColumns;
+	}
+
+}
@@ -0,0 +1,33 @@
+package cn.brent.commons.office.excel;
+
+/**
+ * 导入导出的处理阶段
+ */
+public enum ExcelPhase {
+
+	/**
+	 * 打开文档（导入）：加载工作薄或打开压缩包、读取共享字符串、扫描合并单元格
+	 */
+	OPEN,
+
+	/**
+	 * 解析工作表的数据行（导入）
+	 */
+	PARSE,
+
+	/**
+	 * 行转换（导入：单元格值转换为实体；导出：实体取值写入单元格）
+	 */
+	CONVERT,
+
+	/**
+	 * 创建样式、标题和表头（导出）
+	 */
+	STYLE,
+
+	/**
+	 * 写出到输出流（导出）
+	 */
+	WRITE
+
+}
@@ -0,0 +1,120 @@
+package cn.brent.commons.office.excel;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 导入导出的累计统计（并行转换时由多个线程更新）
+ */
+public class ExcelStats {
+
+	private final Class<?> type;
+
+	private final AtomicLong rows = new AtomicLong();
+
+	private final AtomicLong cells = new AtomicLong();
+
+	private final AtomicLong bytes = new AtomicLong();
+
+	private final AtomicLongArray nanos = new AtomicLongArray(ExcelPhase.values().length);
+
+	/**
+	 * 各列（标题）的转换失败数
+	 */
+	private final Map<String, Integer> failures = new LinkedHashMap<String, Integer>();
+
+	ExcelStats(Class<?> type) {
+		this.type = type;
+	}
+
+	void addRow(int cells, long nanos) {
+		this.rows.incrementAndGet();
+		this.cells.addAndGet(cells);
+		this.nanos.addAndGet(ExcelPhase.CONVERT.ordinal(), nanos);
+	}
+
+	void addRows(long rows, long cells) {
+		this.rows.addAndGet(rows);
+		this.cells.addAndGet(cells);
+	}
+
+	void addBytes(long bytes) {
+		this.bytes.addAndGet(bytes);
+	}
+
+	void addNanos(ExcelPhase phase, long nanos) {
+		this.nanos.addAndGet(phase.ordinal(), nanos);
+	}
+
+	void addFailure(String column) {
+		synchronized (failures) {
+			Integer count = failures.get(column);
+			failures.put(column, count == null ? 1 : count + 1);
+		}
+	}
+
+	/**
+	 * 导入导出的实体类型
+	 */
+	public Class<?> getType() {
+		return type;
+	}
+
+	/**
+	 * 处理的行数（导入为转换的数据行，含被过滤的空白行；导出为写入的数据行）
+	 */
+	public long getRows() {
+		return rows.get();
+	}
+
+	/**
+	 * 单元格数（导入为读到值的映射列单元格；导出为写入的单元格）
+	 */
+	public long getCells() {
+		return cells.get();
+	}
+
+	/**
+	 * 写出的字节数（导出）
+	 */
+	public long getBytes() {
+		return bytes.get();
+	}
+
+	/**
+	 * 阶段累计耗时（纳秒），并行转换时为各线程耗时之和
+	 */
+	public long getNanos(ExcelPhase phase) {
+		return nanos.get(phase.ordinal());
+	}
+
+	/**
+	 * 各列（标题）的转换失败数
+	 */
+	public Map<String, Integer> getFailures() {
+		synchronized (failures) {
+			return new LinkedHashMap<String, Integer>(failures);
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(type.getSimpleName()).append(": rows=").append(getRows()).append(", cells=").append(getCells())
+				.append(", bytes=").append(getBytes());
+		for (ExcelPhase phase : ExcelPhase.values()) {
+			long n = getNanos(phase);
+			if (n > 0) {
+				sb.append(", ").append(phase).append('=').append(n / 1000000).append("ms");
+			}
+		}
+		Map<String, Integer> failures = getFailures();
+		if (!failures.isEmpty()) {
+			sb.append(", failures=").append(failures);
+		}
+		return sb.toString();
+	}
+
+}
@@ -3,11 +3,7 @@ package cn.brent.commons.office.excel;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.lang.reflect.Field;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -15,6 +11,7 @@ import java.util.Map;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.SpreadsheetVersion;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellStyle;
 import org.apache.poi.ss.usermodel.DataFormat;
@@ -24,12 +21,12 @@ import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import cn.brent.commons.lang.Reflections;
-import cn.brent.commons.office.excel.ExcelField.ExAct;
 import cn.brent.commons.office.excel.ExcelField.ExAlign;
 import cn.brent.commons.office.excel.handler.ValueHandler;
 
@@ -40,6 +37,11 @@ public class ExportExcel<T> {
 
 	private Logger log = LoggerFactory.getLogger(getClass());
 
+	/**
+	 * 默认日期格式
+	 */
+	private static final String DEFAULT_DATE_FORMAT = "yyyy-MM-dd";
+
 	/**
 	 * 工作薄对象
 	 */
@@ -55,15 +57,80 @@ public class ExportExcel<T> {
 	 */
 	private Map<String, CellStyle> styles;
 
+	/**
+	 * 数据样式（下标为对齐方式）
+	 */
+	private CellStyle[] dataStyles;
+
+	/**
+	 * 默认日期格式的数据样式（下标为对齐方式）
+	 */
+	private CellStyle[] dateStyles;
+
+	/**
+	 * 带格式的数据样式（按对齐方式和格式去重）
+	 */
+	private Map<String, CellStyle> formatStyles = new HashMap<String, CellStyle>();
+
+	/**
+	 * 各列的数据样式
+	 */
+	private CellStyle[] columnStyles;
+
+	/**
+	 * 各列日期值的数据样式
+	 */
+	private CellStyle[] columnDateStyles;
+
 	/**
 	 * 当前行号
 	 */
 	private int rownum;
+
+	/**
+	 * 表格标题
+	 */
+	private String title;
+
+	/**
+	 * 表头列表
+	 */
+	private List<String> headerList;
+
+	/**
+	 * 列宽估算
+	 */
+	private ColumnWidths widths;
+
+	/**
+	 * 每个工作表的最大行数（含标题和表头），超过时自动新建工作表
+	 */
+	private int maxRowsPerSheet;
 	
 	/**
-	 * 注解列表（Object[]{ ExcelField, Field/Method ,expHandler }）
+	 * 导出列
+	 */
+	private List<ExcelColumn> columns;
+
+	/**
+	 * 本导出器的各列值处理器
+	 */
+	@SuppressWarnings("rawtypes")
+	private ValueHandler[] handlers;
+
+	private final Class<?> cls;
+
+	/**
+	 * 指标监听器，为null时不统计
 	 */
-	private List<Object[]> annoList = new ArrayList<Object[]>();
+	private ExcelListener listener;
+
+	private ExcelStats stats;
+
+	/**
+	 * 构造时创建样式和表头的耗时，首次添加数据或写出时回调
+	 */
+	private long styleNanos;
 
 	/**
 	 * 构造函数
@@ -76,71 +143,89 @@ public class ExportExcel<T> {
 	 * @throws InstantiationException
 	 */
 	public ExportExcel(Class<?> cls, boolean isXS, String title) {
-		// Get annotation field
-		Field[] fs = cls.getDeclaredFields();
-		for (Field f : fs) {
-			ExcelField ef = f.getAnnotation(ExcelField.class);
-			if (ef != null && ef.type() != ExAct.imp) {
-				ValueHandler<?, ?> handler = null;
-				if (ef.handler() != ValueHandler.class) {
-					try {
-						handler = ef.handler().newInstance();
-					} catch (Exception e) {
-						throw new RuntimeException(e);
-					}
-				}
-				annoList.add(new Object[] { ef, f, handler });
-			}
-		}
-		// Get annotation method
-		Method[] ms = cls.getDeclaredMethods();
-		for (Method m : ms) {
-			ExcelField ef = m.getAnnotation(ExcelField.class);
-			if (ef != null && ef.type() != ExAct.imp) {
-				ValueHandler<?, ?> handler = null;
-				if (ef.handler() != ValueHandler.class) {
-					try {
-						handler = ef.handler().newInstance();
-					} catch (Exception e) {
-						throw new RuntimeException(e);
-					}
-				}
-				annoList.add(new Object[] { ef, m, handler });
-			}
-		}
-		// Field sorting
-		Collections.sort(annoList, new Comparator<Object[]>() {
-			public int compare(Object[] o1, Object[] o2) {
-				return new Integer(((ExcelField) o1[0]).sort()).compareTo(new Integer(((ExcelField) o2[0]).sort()));
-			};
-		});
-		// Initialize
+		this.cls = cls;
+		initialize(isXS ? new XSSFWorkbook() : new HSSFWorkbook(), title, initAnnoList(cls));
+	}
+
+	/**
+	 * 构造函数（流式导出“XLSX”格式，内存中只保留最近的rowAccessWindowSize行，其余行写入临时文件）
+	 * 
+	 * @param cls
+	 *            实体对象，通过annotation.ExportField获取标题
+	 * @param title
+	 *            表格标题，传“空值”，表示无标题
+	 * @param rowAccessWindowSize
+	 *            内存中保留的行数
+	 * @param compressTmpFiles
+	 *            是否压缩临时文件
+	 */
+	public ExportExcel(Class<?> cls, String title, int rowAccessWindowSize, boolean compressTmpFiles) {
+		SXSSFWorkbook wb = new SXSSFWorkbook(rowAccessWindowSize);
+		wb.setCompressTempFiles(compressTmpFiles);
+		this.cls = cls;
+		initialize(wb, title, initAnnoList(cls));
+	}
+
+	/**
+	 * 解析class的注解
+	 * 
+	 * @param cls
+	 * @return 表头列表
+	 */
+	private List<String> initAnnoList(Class<?> cls) {
+		this.columns = ExcelMapping.of(cls).getExportColumns();
+		this.handlers = ExcelColumn.newHandlers(columns);
 		List<String> headerList = new ArrayList<String>();
-		for (Object[] os : annoList) {
-			String t = ((ExcelField) os[0]).title();
-			headerList.add(t);
+		for (ExcelColumn column : columns) {
+			headerList.add(column.getTitle());
 		}
-		initialize(isXS,title, headerList);
+		return headerList;
 	}
 
 
 	/**
 	 * 初始化函数
 	 * 
+	 * @param wb
+	 *            工作薄对象
 	 * @param title
 	 *            表格标题，传“空值”，表示无标题
 	 * @param headerList
 	 *            表头列表
 	 */
-	private void initialize(boolean isXS, String title, List<String> headerList) {
-		if (isXS) {
-			this.wb = new XSSFWorkbook();
-		} else {
-			this.wb = new HSSFWorkbook();
+	private void initialize(Workbook wb, String title, List<String> headerList) {
+		if (headerList == null) {
+			throw new RuntimeException("headerList not null!");
 		}
-//		this.wb = new SXSSFWorkbook(500);
-		this.sheet = wb.createSheet("Export");
+		long start = System.nanoTime();
+		this.wb = wb;
+		this.title = title;
+		this.headerList = headerList;
+		this.maxRowsPerSheet = getSpreadsheetVersion().getMaxRows();
 		this.styles = createStyles(wb);
+		initColumnStyles();
+		this.widths = new ColumnWidths(headerList);
+		for (int i = 0; i < columns.size(); i++) {
+			if (Date.class.isAssignableFrom(columns.get(i).getValType())) {
+				widths.observe(i, displayLength(i, new Date()));
+			}
+		}
+		createSheet();
+		this.styleNanos = System.nanoTime() - start;
+		log.debug("Initialize success.");
+	}
+
+	private SpreadsheetVersion getSpreadsheetVersion() {
+		return wb instanceof HSSFWorkbook ? SpreadsheetVersion.EXCEL97 : SpreadsheetVersion.EXCEL2007;
+	}
+
+	/**
+	 * 新建工作表（“Export”、“Export2”、“Export3”……），写入标题和表头
+	 */
+	void createSheet() {
+		int index = wb.getNumberOfSheets();
+		this.sheet = wb.createSheet(index == 0 ? "Export" : "Export" + (index + 1));
+		this.rownum = 0;
 		// Create title
 		if (StringUtils.isNotBlank(title)) {
 			Row titleRow = sheet.createRow(rownum++);
@@ -151,22 +236,74 @@ public class ExportExcel<T> {
 			sheet.addMergedRegion(new CellRangeAddress(titleRow.getRowNum(), titleRow.getRowNum(), titleRow.getRowNum(), headerList.size() - 1));
 		}
 		// Create header
-		if (headerList == null) {
-			throw new RuntimeException("headerList not null!");
-		}
 		Row headerRow = sheet.createRow(rownum++);
 		headerRow.setHeightInPoints(16);
 		for (int i = 0; i < headerList.size(); i++) {
 			Cell cell = headerRow.createCell(i);
 			cell.setCellStyle(styles.get("header"));
 			cell.setCellValue(headerList.get(i));
-			sheet.autoSizeColumn(i);
 		}
-		for (int i = 0; i < headerList.size(); i++) {
-			int colWidth = sheet.getColumnWidth(i) * 2;
-			sheet.setColumnWidth(i, colWidth < 3000 ? 3000 : colWidth);
+		// 按表头和已写入的数据估算，写出前按全部数据更新
+		widths.apply(sheet);
+	}
+
+	/**
+	 * 设置每个工作表的最大行数（含标题和表头），达到后自动新建工作表并重复标题和表头；
+	 * 默认为格式上限（“XLS”65536行，“XLSX”1048576行）
+	 * 
+	 * @param maxRowsPerSheet
+	 *            最大行数
+	 */
+	public void setMaxRowsPerSheet(int maxRowsPerSheet) {
+		int headerRows = StringUtils.isNotBlank(title) ? 2 : 1;
+		if (maxRowsPerSheet <= headerRows || maxRowsPerSheet > getSpreadsheetVersion().getMaxRows()) {
+			throw new IllegalArgumentException("maxRowsPerSheet out of range: " + maxRowsPerSheet);
 		}
-		log.debug("Initialize success.");
+		this.maxRowsPerSheet = maxRowsPerSheet;
+	}
+
+	/**
+	 * 预先确定各列的数据样式，写入单元格时不再查找或修改样式
+	 */
+	private void initColumnStyles() {
+		ExAlign[] aligns = ExAlign.values();
+		dataStyles = new CellStyle[aligns.length];
+		dateStyles = new CellStyle[aligns.length];
+		for (ExAlign align : aligns) {
+			dataStyles[align.getValue()] = styles.get("data" + align.getValue());
+		}
+		for (ExAlign align : aligns) {
+			dateStyles[align.getValue()] = getFormatStyle(align, DEFAULT_DATE_FORMAT);
+		}
+		columnStyles = new CellStyle[columns.size()];
+		columnDateStyles = new CellStyle[columns.size()];
+		for (int i = 0; i < columns.size(); i++) {
+			ExAlign align = columns.get(i).getAlign();
+			String format = columns.get(i).getField().format();
+			if (StringUtils.isEmpty(format)) {
+				columnStyles[i] = dataStyles[align.getValue()];
+				columnDateStyles[i] = dateStyles[align.getValue()];
+			} else {
+				columnStyles[i] = getFormatStyle(align, format);
+				columnDateStyles[i] = columnStyles[i];
+			}
+		}
+	}
+
+	/**
+	 * 获取带格式的数据样式，相同对齐方式和格式只创建一次
+	 */
+	private CellStyle getFormatStyle(ExAlign align, String format) {
+		String key = align.getValue() + format;
+		CellStyle style = formatStyles.get(key);
+		if (style == null) {
+			DataFormat dataFormat = wb.createDataFormat();
+			style = wb.createCellStyle();
+			style.cloneStyleFrom(dataStyles[align.getValue()]);
+			style.setDataFormat(dataFormat.getFormat(format));
+			formatStyles.put(key, style);
+		}
+		return style;
 	}
 
 	/**
@@ -242,11 +379,22 @@ public class ExportExcel<T> {
 	}
 
 	/**
-	 * 添加一行
+	 * 添加一行（当前工作表已满时写入新的工作表）
 	 * 
 	 * @return 行对象
 	 */
 	public Row addRow() {
+		if (rownum >= maxRowsPerSheet) {
+			if (sheet instanceof SXSSFSheet) {
+				// 已写满的工作表不再访问，剩余行直接写入临时文件
+				try {
+					((SXSSFSheet) sheet).flushRows();
+				} catch (IOException e) {
+					throw new RuntimeException(e);
+				}
+			}
+			createSheet();
+		}
 		return sheet.createRow(rownum++);
 	}
 
@@ -279,8 +427,20 @@ public class ExportExcel<T> {
 	 * @return 单元格对象
 	 */
 	public Cell addCell(Row row, int column, Object val, ExAlign align) {
+		return addCell(row, column, val, dataStyles[align.getValue()], dateStyles[align.getValue()]);
+	}
+
+	/**
+	 * 添加一个单元格
+	 * 
+	 * @param style
+	 *            数据样式
+	 * @param dateStyle
+	 *            日期值的数据样式
+	 * @return 单元格对象
+	 */
+	private Cell addCell(Row row, int column, Object val, CellStyle style, CellStyle dateStyle) {
 		Cell cell = row.createCell(column);
-		CellStyle style = styles.get("data" + align.getValue());
 		try {
 			if (val == null) {
 				cell.setCellValue("");
@@ -295,8 +455,7 @@ public class ExportExcel<T> {
 			} else if (val instanceof Float) {
 				cell.setCellValue((Float) val);
 			} else if (val instanceof Date) {
-				DataFormat format = wb.createDataFormat();
-				style.setDataFormat(format.getFormat("yyyy-MM-dd"));
+				style = dateStyle;
 				cell.setCellValue((Date) val);
 			} else {
 				throw new RuntimeException("value is unkown class type");
@@ -314,47 +473,143 @@ public class ExportExcel<T> {
 	 * 
 	 * @return list 数据列表
 	 */
-	@SuppressWarnings({ "rawtypes", "unchecked" })
 	public void setDataList(List<T> list) {
+		long start = stats != null ? System.nanoTime() : 0;
+		long cells = 0;
 		for (T e : list) {
-			int colunm = 0;
 			Row row = this.addRow();
-			if (annoList.size() == 0) {
-				if (e instanceof Object[]) {
-					for (Object s : (Object[]) e) {
-						this.addCell(row, colunm++, s);
-					}
-				} else if (e instanceof List) {
-					for (Object s : (List) e) {
-						this.addCell(row, colunm++, s);
-					}
-				}
-			} else {
-				for (Object[] os : annoList) {
-					ExcelField ef = (ExcelField) os[0];
-					ValueHandler handler = (ValueHandler) os[2];
-					Object val = null;
-					// Get entity value
-					try {
-						if (os[1] instanceof Field) {
-							val = Reflections.invokeGetter(e, ((Field) os[1]).getName());
-						} else if (os[1] instanceof Method) {
-							val = Reflections.invokeMethod(e, ((Method) os[1]).getName(), new Class[] {}, new Object[] {});
-						}
-					} catch (Exception ex) {
-						// Failure to ignore
-						log.info(ex.toString());
-						val = "";
-					}
-					if (handler != null) {
-						val = handler.expConvert(val);
-					}
-					this.addCell(row, colunm++, val, ef.align());
-				}
+			Object[] values = getRowValues(e);
+			for (int colunm = 0; colunm < values.length; colunm++) {
+				this.addCell(row, colunm, values[colunm], getCellStyle(colunm, false), getCellStyle(colunm, true));
+			}
+			observeRow(values);
+			cells += values.length;
+		}
+		if (stats != null) {
+			stats.addRows(list.size(), cells);
+			phaseEnd(ExcelPhase.CONVERT, System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * 取一行的导出值（未注解时数据为数组或列表）
+	 */
+	@SuppressWarnings("rawtypes")
+	Object[] getRowValues(T e) {
+		if (columns.size() == 0) {
+			if (e instanceof Object[]) {
+				return (Object[]) e;
+			} else if (e instanceof List) {
+				return ((List) e).toArray();
+			}
+			return new Object[0];
+		}
+		return ExcelColumn.exportValues(columns, handlers, e, log);
+	}
+
+	/**
+	 * 统计一行的显示长度（抽样）
+	 */
+	void observeRow(Object[] values) {
+		if (!widths.sample()) {
+			return;
+		}
+		for (int i = 0; i < values.length; i++) {
+			if (values[i] != null) {
+				widths.observe(i, displayLength(i, values[i]));
 			}
 		}
 	}
 
+	/**
+	 * 值按列格式显示的大致长度
+	 */
+	private int displayLength(int column, Object val) {
+		String format = columns.size() == 0 ? "" : columns.get(column).getField().format();
+		if (val instanceof Date) {
+			return ColumnWidths.displayLength(StringUtils.isEmpty(format) ? DEFAULT_DATE_FORMAT : format);
+		} else if (val instanceof Number) {
+			double d = ((Number) val).doubleValue();
+			String s = d == Math.rint(d) && Math.abs(d) < 1e15 ? Long.toString((long) d) : val.toString();
+			// 千分位
+			return format.indexOf(',') >= 0 ? s.length() + s.length() / 3 : s.length();
+		}
+		return ColumnWidths.displayLength(val.toString());
+	}
+
+	/**
+	 * 将估算的列宽应用到全部工作表
+	 */
+	void applyColumnWidths() {
+		for (int i = 0; i < wb.getNumberOfSheets(); i++) {
+			widths.apply(wb.getSheetAt(i));
+		}
+	}
+
+	/**
+	 * 列的数据样式
+	 * 
+	 * @param date
+	 *            是否为日期值
+	 */
+	CellStyle getCellStyle(int column, boolean date) {
+		if (columns.size() == 0) {
+			return date ? dateStyles[ExAlign.auto.getValue()] : dataStyles[ExAlign.auto.getValue()];
+		}
+		return date ? columnDateStyles[column] : columnStyles[column];
+	}
+
+	Workbook getWorkbook() {
+		return wb;
+	}
+
+	Sheet getSheet() {
+		return sheet;
+	}
+
+	/**
+	 * 当前工作表的下一行行号
+	 */
+	int getRownum() {
+		return rownum;
+	}
+
+	int getMaxRowsPerSheet() {
+		return maxRowsPerSheet;
+	}
+
+	ExcelStats getStats() {
+		return stats;
+	}
+
+	/**
+	 * 阶段结束，累加耗时并回调监听器（先补回调构造时的STYLE阶段）；监听器的异常只记录日志
+	 */
+	void phaseEnd(ExcelPhase phase, long nanos) {
+		if (styleNanos > 0) {
+			long style = styleNanos;
+			styleNanos = 0;
+			phaseEnd(ExcelPhase.STYLE, style);
+		}
+		stats.addNanos(phase, nanos);
+		try {
+			listener.onPhaseEnd(phase, stats);
+		} catch (RuntimeException e) {
+			log.warn("Listener error: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * 设置指标监听器；构造时的STYLE阶段在首次添加数据或写出时回调，setDataList结束时回调CONVERT，
+	 * write结束时回调WRITE（含写出字节数）。未设置时不计时
+	 * 
+	 * @param listener
+	 */
+	public void setListener(ExcelListener listener) {
+		this.listener = listener;
+		this.stats = listener == null ? null : new ExcelStats(cls);
+	}
+
 	/**
 	 * 输出数据流
 	 * 
@@ -362,7 +617,29 @@ public class ExportExcel<T> {
 	 *            输出数据流
 	 */
 	public void write(OutputStream os) throws IOException {
-		wb.write(os);
+		try {
+			applyColumnWidths();
+			if (stats == null) {
+				wb.write(os);
+				return;
+			}
+			long start = System.nanoTime();
+			CountingOutputStream counter = new CountingOutputStream(os);
+			wb.write(counter);
+			stats.addBytes(counter.getCount());
+			phaseEnd(ExcelPhase.WRITE, System.nanoTime() - start);
+		} finally {
+			dispose();
+		}
+	}
+
+	/**
+	 * 清理流式导出产生的临时文件，write后自动调用
+	 */
+	public void dispose() {
+		if (wb instanceof SXSSFWorkbook) {
+			((SXSSFWorkbook) wb).dispose();
+		}
 	}
 
 	/**
@@ -372,11 +649,22 @@ public class ExportExcel<T> {
 	 *            输出文件名
 	 */
 	public void writeFile(String name) {
+		FileOutputStream os = null;
 		try {
-			FileOutputStream os = new FileOutputStream(name);
+			os = new FileOutputStream(name);
 			this.write(os);
 		} catch (Exception e) {
 			throw new RuntimeException(e);
+		} finally {
+			if (os != null) {
+				try {
+					os.close();
+				} catch (IOException e) {
+					log.warn(e.getMessage(), e);
+				}
+			} else {
+				dispose();
+			}
 		}
 	}
 
@@ -0,0 +1,159 @@
+package cn.brent.commons.office.excel;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 有界导出队列
+ *
+ * 生产线程调用{@link #put(Object)}放入数据，队列满时阻塞，直到写出线程通过迭代器取走；
+ * 生产结束后调用{@link #complete()}，出错时调用{@link #fail(Throwable)}（不阻塞）使写出线程抛出异常。
+ * 写出线程结束（含出错中止）时调用{@link #close()}，之后生产线程的put抛出IllegalStateException，不会一直等待
+ */
+public class ExportQueue<T> implements Iterator<T>, Closeable {
+
+	/**
+	 * 结束标记
+	 */
+	private static final Object END = new Object();
+
+	/**
+	 * 等待队列时检查关闭标志的间隔（毫秒）
+	 */
+	private static final long POLL_MILLIS = 50;
+
+	private final BlockingQueue<Object> queue;
+
+	private volatile Throwable failure;
+
+	private volatile boolean closed;
+
+	private Object next;
+
+	private boolean finished;
+
+	/**
+	 * @param capacity
+	 *            最多缓存的行数
+	 */
+	public ExportQueue(int capacity) {
+		this.queue = new ArrayBlockingQueue<Object>(capacity);
+	}
+
+	/**
+	 * 放入一行数据，队列满时等待
+	 * 
+	 * @throws IllegalStateException
+	 *             写出线程已关闭队列
+	 */
+	public void put(T data) throws InterruptedException {
+		if (data == null) {
+			throw new NullPointerException("data");
+		}
+		offer(data);
+	}
+
+	/**
+	 * 数据已全部放入；写出线程已关闭队列时不再放入结束标记
+	 */
+	public void complete() throws InterruptedException {
+		if (!closed) {
+			offer(END);
+		}
+	}
+
+	private void offer(Object o) throws InterruptedException {
+		while (true) {
+			if (closed) {
+				throw new IllegalStateException("Export queue closed");
+			}
+			if (queue.offer(o, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * 生产出错，写出线程在下次取数据时抛出异常，未取走的数据丢弃；不阻塞
+	 */
+	public void fail(Throwable e) {
+		this.failure = e;
+		// 队列为空时唤醒等待的写出线程；队列满时写出线程不在等待，取下一行前即检查错误
+		queue.offer(END);
+	}
+
+	/**
+	 * 写出线程不再取数据，丢弃未取走的数据；可重复调用
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		queue.clear();
+	}
+
+	/**
+	 * 写出结束（含出错中止）后关闭可关闭的数据来源，如{@link ExportQueue}，使生产线程不再等待
+	 */
+	static void closeSource(Iterator<?> data) {
+		if (data instanceof Closeable) {
+			try {
+				((Closeable) data).close();
+			} catch (IOException e) {
+				// 关闭来源失败不影响已写出的数据
+			}
+		}
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (next != null) {
+			return true;
+		}
+		if (finished || closed) {
+			return false;
+		}
+		checkFailure();
+		try {
+			next = queue.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
+		if (next == END) {
+			next = null;
+			finished = true;
+			checkFailure();
+			return false;
+		}
+		return true;
+	}
+
+	private void checkFailure() {
+		if (failure != null) {
+			finished = true;
+			throw new RuntimeException(failure);
+		}
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public T next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		T data = (T) next;
+		next = null;
+		return data;
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+}
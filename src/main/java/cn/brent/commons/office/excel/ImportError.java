@@ -0,0 +1,76 @@
+package cn.brent.commons.office.excel;
+
+/**
+ * 导入转换错误
+ */
+public class ImportError {
+
+	/**
+	 * 行号
+	 */
+	private final int rowNum;
+
+	/**
+	 * 列号
+	 */
+	private final int columnNum;
+
+	/**
+	 * 列标题
+	 */
+	private final String title;
+
+	/**
+	 * 单元格值
+	 */
+	private final Object value;
+
+	/**
+	 * 属性类型
+	 */
+	private final Class<?> type;
+
+	/**
+	 * ValueHandler抛出的异常，类型不匹配时为null
+	 */
+	private final Throwable cause;
+
+	public ImportError(int rowNum, int columnNum, String title, Object value, Class<?> type, Throwable cause) {
+		this.rowNum = rowNum;
+		this.columnNum = columnNum;
+		this.title = title;
+		this.value = value;
+		this.type = type;
+		this.cause = cause;
+	}
+
+	public int getRowNum() {
+		return rowNum;
+	}
+
+	public int getColumnNum() {
+		return columnNum;
+	}
+
+	public String getTitle() {
+		return title;
+	}
+
+	public Object getValue() {
+		return value;
+	}
+
+	public Class<?> getType() {
+		return type;
+	}
+
+	public Throwable getCause() {
+		return cause;
+	}
+
+	@Override
+	public String toString() {
+		return "[" + rowNum + "," + columnNum + "] " + title + ": " + value + " -> " + type.getSimpleName() + (cause == null ? "" : " (" + cause + ")");
+	}
+
+}
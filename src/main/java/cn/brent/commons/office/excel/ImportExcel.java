@@ -1,44 +1,55 @@
 package cn.brent.commons.office.excel;
 
+import java.io.Closeable;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.lang.reflect.Field;
-import java.lang.reflect.Method;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Comparator;
-import java.util.Date;
-import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
-import org.apache.commons.lang3.StringUtils;
 import org.apache.poi.hssf.usermodel.HSSFCell;
-import org.apache.poi.hssf.usermodel.HSSFFormulaEvaluator;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.poifs.filesystem.NPOIFSFileSystem;
 import org.apache.poi.ss.usermodel.Cell;
-import org.apache.poi.ss.usermodel.DateUtil;
 import org.apache.poi.ss.usermodel.FormulaEvaluator;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.util.CellRangeAddress;
-import org.apache.poi.xssf.usermodel.XSSFFormulaEvaluator;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import cn.brent.commons.lang.Reflections;
-import cn.brent.commons.office.excel.ExcelField.ExAct;
 import cn.brent.commons.office.excel.handler.ValueHandler;
 
 /**
  * 导入Excel文件（支持“XLS”和“XLSX”格式）
  * 
  */
-public class ImportExcel<T> {
+public class ImportExcel<T> implements Iterable<T>, Closeable {
 
 	protected Logger log = LoggerFactory.getLogger(getClass());
 
@@ -67,37 +78,128 @@ public class ImportExcel<T> {
 	protected BlankRowFilter<T> blankRowFilter;
 
 	/**
-	 * 注解列表（Object[]{ ExcelField, Field/Method, Handler }）
+	 * 是否重新计算公式，为false时直接使用文件中缓存的公式结果
 	 */
-	private List<Object[]> annoList = new ArrayList<Object[]>();
+	protected boolean evaluateFormula = true;
 
 	/**
-	 * 合并单元格value Map
+	 * 公式计算器
 	 */
-	protected Map<CellRangeAddress, Object> rangesMap = new HashMap<CellRangeAddress, Object>();
+	private FormulaEvaluator evaluator;
+
+	/**
+	 * 并行转换线程池，为null时在当前线程转换
+	 */
+	private ExecutorService convertExecutor;
+
+	private int convertParallelism;
+
+	private int convertChunkSize;
+
+	/**
+	 * 流水线导入线程池，为null时不使用流水线
+	 */
+	private ExecutorService pipelineExecutor;
+
+	private int pipelineConverters;
+
+	private int pipelineChunkSize;
+
+	/**
+	 * 各导入列的值字典，未启用的列为null
+	 */
+	private ValueDictionary[] dictionaries;
+
+	/**
+	 * 是否已取消读取
+	 */
+	private volatile boolean cancelled;
+
+	private ExcelMapping mapping;
+
+	/**
+	 * 导入列
+	 */
+	private List<ExcelColumn> columns;
+
+	/**
+	 * 已打开读取器、尚未关闭的迭代器，关闭导入器时一并关闭
+	 */
+	private final Set<DataIterator> openIterators = Collections.newSetFromMap(new IdentityHashMap<DataIterator, Boolean>());
+
+	/**
+	 * 从文件打开的文档，关闭导入器时释放
+	 */
+	private Closeable resource;
+
+	/**
+	 * 是否按表头名称绑定列
+	 */
+	private boolean bindByTitle;
+
+	private boolean bound;
+
+	/**
+	 * 映射列 → 工作表列号，-1表示表头中没有该列
+	 */
+	private int[] columnIndexes;
+
+	/**
+	 * 需要读取的列（下标为列号）
+	 */
+	private boolean[] columnMask;
+
+	/**
+	 * 转换错误
+	 */
+	private final List<ImportError> errors = new ArrayList<ImportError>();
+
+	private int errorCount;
+
+	private int maxErrors = 100;
+
+	/**
+	 * 与映射列相交的合并单元格
+	 */
+	MergedRegions mergedRegions;
+
+	/**
+	 * 指标监听器，为null时不统计
+	 */
+	private ExcelListener listener;
+
+	private ExcelStats stats;
+
+	/**
+	 * 构造时打开文档的耗时，开始读取时回调
+	 */
+	private long openNanos;
 	
+	/**
+	 * 直接读取文件（只读，不将整个文档复制到内存），用完后调用{@link #close()}释放文件
+	 */
 	public ImportExcel(Class<T> clz, File file, int headerNum, int sheetIndex) {
-		if (file == null) {
-			throw new RuntimeException("导入文档为空!");
-		} else if (file.getName().toLowerCase().endsWith("xls")) {
-			isXS = false;
-		} else if (file.getName().toLowerCase().endsWith("xlsx")) {
-			isXS = true;
-		} else {
-			throw new RuntimeException("文档格式不正确!");
-		}
-
+		this.isXS = isXlsx(file);
 		this.headerNum = headerNum;
 		this.clz=clz;
 		
 		try {
 			initAnnoList(clz);
-			init(new FileInputStream(file), sheetIndex);
+			long start = System.nanoTime();
+			init(file, sheetIndex);
+			openNanos = System.nanoTime() - start;
 		} catch (Exception e) {
 			throw new RuntimeException(e);
 		}
 	}
 
+	/**
+	 * 直接读取文件（只读，不将整个文档复制到内存），用完后调用{@link #close()}释放文件
+	 */
+	public ImportExcel(Class<T> clz, Path path, int headerNum, int sheetIndex) {
+		this(clz, path == null ? null : path.toFile(), headerNum, sheetIndex);
+	}
+
 	public ImportExcel(Class<T> clz, boolean isXs, InputStream is, int headerNum, int sheetIndex) {
 		this.isXS = isXs;
 		this.headerNum = headerNum;
@@ -105,12 +207,44 @@ public class ImportExcel<T> {
 
 		try {
 			initAnnoList(clz);
+			long start = System.nanoTime();
 			init(is, sheetIndex);
+			openNanos = System.nanoTime() - start;
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * 仅解析注解，不加载工作薄，供采用其它解析方式的子类使用
+	 */
+	protected ImportExcel(Class<T> clz, boolean isXs, int headerNum) {
+		this.isXS = isXs;
+		this.headerNum = headerNum;
+		this.clz=clz;
+
+		try {
+			initAnnoList(clz);
 		} catch (Exception e) {
 			throw new RuntimeException(e);
 		}
 	}
 
+	/**
+	 * 按扩展名判断文档格式
+	 */
+	static boolean isXlsx(File file) {
+		if (file == null) {
+			throw new RuntimeException("导入文档为空!");
+		} else if (file.getName().toLowerCase().endsWith("xls")) {
+			return false;
+		} else if (file.getName().toLowerCase().endsWith("xlsx")) {
+			return true;
+		} else {
+			throw new RuntimeException("文档格式不正确!");
+		}
+	}
+
 	protected void init(InputStream is, int sheetIndex) {
 
 		if (is == null) {
@@ -125,21 +259,59 @@ public class ImportExcel<T> {
 		} catch (IOException e) {
 			throw new RuntimeException(e);
 		}
+		initSheet(sheetIndex);
+	}
+
+	/**
+	 * 以只读方式打开文件，“XLSX”由OPCPackage按需读取压缩包条目，“XLS”由NPOIFSFileSystem按块读取
+	 */
+	protected void init(File file, int sheetIndex) {
+		try {
+			if (isXS) {
+				final OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ);
+				this.resource = new Closeable() {
+					@Override
+					public void close() {
+						pkg.revert();
+					}
+				};
+				this.wb = new XSSFWorkbook(pkg);
+			} else {
+				NPOIFSFileSystem fs = new NPOIFSFileSystem(file, true);
+				this.resource = fs;
+				this.wb = new HSSFWorkbook(fs.getRoot(), true);
+			}
+			initSheet(sheetIndex);
+		} catch (RuntimeException e) {
+			closeQuietly();
+			throw e;
+		} catch (Exception e) {
+			closeQuietly();
+			throw new RuntimeException(e);
+		}
+	}
+
+	private void initSheet(int sheetIndex) {
 		if (this.wb.getNumberOfSheets() < sheetIndex) {
 			throw new RuntimeException("文档中没有工作表!");
 		}
 		this.sheet = this.wb.getSheetAt(sheetIndex);
 
-		int num = sheet.getNumMergedRegions();
-		for (int i = 0; i < num; i++) {
-			CellRangeAddress cr = sheet.getMergedRegion(i);
-			Cell cell = sheet.getRow(cr.getFirstRow()).getCell(cr.getFirstColumn());
-			rangesMap.put(cr, getCellValue(cell));
-		}
-
 		log.debug("Initialize success.");
 	}
 
+	/**
+	 * 公式计算器，每个工作薄共用一个以复用其计算缓存
+	 * 
+	 * @return
+	 */
+	protected FormulaEvaluator getFormulaEvaluator() {
+		if (evaluator == null) {
+			evaluator = wb.getCreationHelper().createFormulaEvaluator();
+		}
+		return evaluator;
+	}
+
 	protected Object getCellValue(Cell cell) {
 		
 		if (cell == null) {
@@ -153,13 +325,12 @@ public class ImportExcel<T> {
 			} else if (cell.getCellType() == Cell.CELL_TYPE_STRING) {
 				val = cell.getStringCellValue();
 			} else if (cell.getCellType() == Cell.CELL_TYPE_FORMULA) {
-				FormulaEvaluator evaluator;
-				if (isXS) {
-					evaluator = new XSSFFormulaEvaluator((XSSFWorkbook) sheet.getWorkbook());
+				int result;
+				if (evaluateFormula) {
+					result = getFormulaEvaluator().evaluateFormulaCell(cell);
 				} else {
-					evaluator = new HSSFFormulaEvaluator((HSSFWorkbook) sheet.getWorkbook());
+					result = cell.getCachedFormulaResultType();
 				}
-				int result = evaluator.evaluateFormulaCell(cell);
 				if (HSSFCell.CELL_TYPE_ERROR == result) {
 					val = cell.getErrorCellValue();
 				} else if (result == HSSFCell.CELL_TYPE_NUMERIC) {
@@ -180,142 +351,304 @@ public class ImportExcel<T> {
 	}
 
 	/**
-	 * 解析class的注解
+	 * 解析class的注解（映射按类全局缓存）
 	 * 
 	 * @param cls
 	 * @throws Exception
 	 */
 	protected void initAnnoList(Class<T> cls) throws Exception {
+		this.mapping = ExcelMapping.of(cls);
+		this.columns = mapping.getImportColumns();
+		int[] indexes = new int[columns.size()];
+		for (int i = 0; i < indexes.length; i++) {
+			indexes[i] = i;
+		}
+		setColumnIndexes(indexes);
+	}
 
-		Field[] fs = cls.getDeclaredFields();
-		for (Field f : fs) {
-			ExcelField ef = f.getAnnotation(ExcelField.class);
-			if (ef != null && ef.type() != ExAct.exp) {
-				Class<?> valType = f.getType();
-				ValueHandler<?, ?> handler = null;
-				if (ef.handler() != ValueHandler.class) {
-					handler = ef.handler().newInstance();
-				}
-				annoList.add(new Object[] { ef, f, handler, valType });
+	/**
+	 * 确定各映射列在工作表中的列号，按表头名称绑定时读取标题行
+	 */
+	void bindColumns() {
+		if (!bindByTitle || bound) {
+			return;
+		}
+		List<String> header = readHeader();
+		int[] indexes = new int[columns.size()];
+		for (int i = 0; i < indexes.length; i++) {
+			String title = columns.get(i).getTitle().trim();
+			// 没有标题的列不与空白表头单元格绑定
+			indexes[i] = title.isEmpty() ? -1 : header.indexOf(title);
+			if (indexes[i] < 0) {
+				log.warn("Column [" + columns.get(i).getTitle() + "] not found in header row " + headerNum);
 			}
 		}
-		// Get annotation method
-		Method[] ms = cls.getDeclaredMethods();
-		for (Method m : ms) {
-			ExcelField ef = m.getAnnotation(ExcelField.class);
-			if (ef != null && ef.type() != ExAct.exp) {
-				ValueHandler<?, ?> handler = null;
-				if (ef.handler() != ValueHandler.class) {
-					handler = ef.handler().newInstance();
-				}
+		setColumnIndexes(indexes);
+		bound = true;
+	}
 
-				Class<?> valType = Class.class;
-				if ("get".equals(m.getName().substring(0, 3))) {
-					valType = m.getReturnType();
-				} else if ("set".equals(m.getName().substring(0, 3))) {
-					valType = m.getParameterTypes()[0];
-				}
-				annoList.add(new Object[] { ef, m, handler, valType });
+	private void setColumnIndexes(int[] indexes) {
+		int width = 0;
+		for (int index : indexes) {
+			width = Math.max(width, index + 1);
+		}
+		boolean[] mask = new boolean[width];
+		for (int index : indexes) {
+			if (index >= 0) {
+				mask[index] = true;
 			}
 		}
-		// Field sorting
-		Collections.sort(annoList, new Comparator<Object[]>() {
-			public int compare(Object[] o1, Object[] o2) {
-				return new Integer(((ExcelField) o1[0]).sort()).compareTo(new Integer(((ExcelField) o2[0]).sort()));
-			};
-		});
+		this.columnIndexes = indexes;
+		this.columnMask = mask;
+	}
+
+	/**
+	 * 读取标题行各列的文本（下标为列号）
+	 */
+	List<String> readHeader() {
+		List<String> header = new ArrayList<String>();
+		Row row = getRow(headerNum);
+		if (row != null) {
+			for (int i = 0; i < row.getLastCellNum(); i++) {
+				header.add(headerText(getCellValue(row.getCell(i))));
+			}
+		}
+		return header;
+	}
+
+	/**
+	 * 表头单元格的文本，数值按文本列的规则转换（不输出整数的“.0”）
+	 */
+	static String headerText(Object val) {
+		if (val == null) {
+			return null;
+		}
+		Object text = ValueConverter.forType(String.class, null).convert(val);
+		return text.toString().trim();
 	}
 	
-	@SuppressWarnings({ "rawtypes", "unchecked" })
 	public List<T> getDatas() {
 		
 		List<T> dataList = new ArrayList<T>();
-		for (int i = this.getDataRowNum(); i < this.getLastDataRowNum(); i++) {
-			Row row = this.getRow(i);
-			if(row==null){
-				continue;
+		DataIterator it = newBatchIterator();
+		try {
+			while (it.hasNext()) {
+				dataList.add(it.next());
 			}
-			
-			T e;
-			try {
-				e = clz.newInstance();
-			} catch (Exception e1) {
-				throw new RuntimeException(e1);
-			}
-			int column = 0;
-			for (Object[] os : annoList) {
-				Object val = this.getCellValue(row, column++);
-				if (val == null) {
-					continue;
+		} finally {
+			it.close();
+		}
+		return dataList;
+		
+	}
+	
+	/**
+	 * 分批读取数据，每读取batchSize条（已过滤空白行）回调一次，不在内存中保留全部数据
+	 * 
+	 * @param batchSize
+	 *            每批条数
+	 * @param handler
+	 *            批处理回调
+	 */
+	public void getDatas(int batchSize, BatchHandler<T> handler) {
+		if (batchSize <= 0) {
+			throw new IllegalArgumentException("batchSize must be positive");
+		}
+		DataIterator it = newBatchIterator();
+		try {
+			List<T> batch = new ArrayList<T>(batchSize);
+			while (it.hasNext()) {
+				batch.add(it.next());
+				if (batch.size() == batchSize) {
+					handler.handle(batch);
+					batch = new ArrayList<T>(batchSize);
 				}
-				ValueHandler handler=(ValueHandler)os[2];
-				Class<?> valType = (Class<?>)os[3];
+			}
+			if (!batch.isEmpty()) {
+				handler.handle(batch);
+			}
+		} finally {
+			it.close();
+		}
+	}
+	
+	/**
+	 * 逐行读取数据（已过滤空白行），首次调用hasNext()时才打开读取器，遍历结束后自动释放。
+	 * 提前结束遍历（如在for-each中break）时，调用迭代器（实现了{@link Closeable}）的close()或关闭导入器释放读取器
+	 */
+	@Override
+	public Iterator<T> iterator() {
+		return newIterator();
+	}
+
+	private DataIterator newIterator() {
+		return convertExecutor == null ? new DataIterator() : new ParallelDataIterator();
+	}
+
+	/**
+	 * 读取全部数据时使用的迭代器，配置了流水线时使用流水线
+	 */
+	private DataIterator newBatchIterator() {
+		return pipelineExecutor == null ? newIterator() : new PipelineDataIterator();
+	}
+
+	/**
+	 * 已取消时抛出CancellationException
+	 */
+	private void checkCancelled() {
+		if (cancelled) {
+			throw new CancellationException("Import cancelled");
+		}
+	}
+	
+	/**
+	 * 打开数据行读取器，子类可替换为其它解析方式
+	 * 
+	 * @return
+	 */
+	RowReader openReader() {
+		bindColumns();
+		if (mergedRegions == null) {
+			int num = sheet.getNumMergedRegions();
+			List<CellRangeAddress> regions = new ArrayList<CellRangeAddress>(num);
+			for (int i = 0; i < num; i++) {
+				regions.add(sheet.getMergedRegion(i));
+			}
+			mergedRegions = new MergedRegions(regions, getColumnCount());
+		}
+		return new SheetRowReader();
+	}
+	
+	/**
+	 * 将一行的值转换为实体对象
+	 * 
+	 * @param row
+	 * @param handlers
+	 *            当前线程使用的各列值处理器
+	 * @return
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	T toBean(RowValues row, ValueHandler[] handlers) {
+		ExcelStats stats = this.stats;
+		long start = stats != null ? System.nanoTime() : 0;
+		int cells = 0;
+		T e = mapping.newInstance(clz);
+		for (int i = 0; i < columns.size(); i++) {
+			int column = columnIndexes[i];
+			if (column < 0) {
+				continue;
+			}
+			Object val = row.getValue(column);
+			if (val == null) {
+				continue;
+			}
+			cells++;
+			ExcelColumn col = columns.get(i);
+			ValueHandler handler = handlers[i];
+			Object converted;
+			if (handler != null) {
 				try {
-					if(os[2]!=null){
-						val=handler.impConvert(val);
-					}else{
-						if (valType == String.class) {
-							String s = String.valueOf(val.toString());
-							if (StringUtils.endsWith(s, ".0")) {
-								val = StringUtils.substringBefore(s, ".0");
-							} else {
-								val = String.valueOf(val.toString());
-							}
-						} else if (valType == Integer.class) {
-							val = Double.valueOf(val.toString()).intValue();
-						} else if (valType == Long.class) {
-							val = Double.valueOf(val.toString()).longValue();
-						} else if (valType == Double.class) {
-							val = Double.valueOf(val.toString());
-						} else if (valType == Float.class) {
-							val = Float.valueOf(val.toString());
-						} else if (valType == Date.class) {
-							val = DateUtil.getJavaDate((Double) val);
-						}
-					}
+					converted = handler.impConvert(val);
 				} catch (Exception ex) {
-					log.info("Get cell value [" + i + "," + column + "] error: " + ex.toString());
-					val = null;
+					addError(new ImportError(row.getRowNum(), column, col.getTitle(), val, col.getValType(), ex));
+					converted = null;
 				}
-				// set entity value
-				if (os[1] instanceof Field) {
-					Reflections.invokeSetter(e, ((Field) os[1]).getName(), val);
-				} else if (os[1] instanceof Method) {
-					String mthodName = ((Method) os[1]).getName();
-					if ("get".equals(mthodName.substring(0, 3))) {
-						mthodName = "set" + StringUtils.substringAfter(mthodName, "get");
-					}
-					Reflections.invokeMethod(e, mthodName, new Class[] { valType },new Object[] { val });
+			} else {
+				converted = col.convert(val);
+				if (converted == ValueConverter.INVALID) {
+					addError(new ImportError(row.getRowNum(), column, col.getTitle(), val, col.getValType(), null));
+					converted = null;
 				}
 			}
-			
-			if(blankRowFilter==null){
-				dataList.add(e);
-			}else if (!blankRowFilter.isBlankRow(e)){
-				dataList.add(e);
+			// 基本类型属性保留默认值
+			if (converted == null && col.getValType().isPrimitive()) {
+				continue;
+			}
+			if (dictionaries != null && dictionaries[i] != null) {
+				converted = dictionaries[i].canonical(converted);
 			}
+			// set entity value
+			col.set(e, converted);
 		}
-		return dataList;
-		
+		if (stats != null) {
+			stats.addRow(cells, System.nanoTime() - start);
+		}
+		return e;
 	}
-	
+
 	/**
-	 * 获取单元格值
-	 * 
-	 * @param row
-	 *            获取的行
-	 * @param column
-	 *            获取单元格列号
-	 * @return 单元格值
+	 * 记录转换错误，超过上限时只计数
 	 */
-	private Object getCellValue(Row row, int column) {
-		int rownum = row.getRowNum();
-		for (CellRangeAddress cr : rangesMap.keySet()) {
-			if (cr.isInRange(rownum, column)) {
-				return rangesMap.get(cr);
+	private void addError(ImportError error) {
+		synchronized (errors) {
+			errorCount++;
+			if (errors.size() < maxErrors) {
+				errors.add(error);
 			}
 		}
-		return getCellValue(row.getCell(column));
+		if (stats != null) {
+			stats.addFailure(error.getTitle());
+		}
+	}
+
+	/**
+	 * 阶段结束，累加耗时并回调监听器；监听器的异常只记录日志
+	 */
+	private void phaseEnd(ExcelPhase phase, long nanos) {
+		stats.addNanos(phase, nanos);
+		try {
+			listener.onPhaseEnd(phase, stats);
+		} catch (RuntimeException e) {
+			log.warn("Listener error: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * 转换错误（最多保留{@link #setMaxErrors(int)}条）
+	 */
+	public List<ImportError> getErrors() {
+		synchronized (errors) {
+			return new ArrayList<ImportError>(errors);
+		}
+	}
+
+	/**
+	 * 转换错误总数（含超过上限未保留的）
+	 */
+	public int getErrorCount() {
+		synchronized (errors) {
+			return errorCount;
+		}
+	}
+
+	/**
+	 * 设置保留的转换错误条数（默认100）
+	 * 
+	 * @param maxErrors
+	 */
+	public void setMaxErrors(int maxErrors) {
+		synchronized (errors) {
+			this.maxErrors = maxErrors;
+		}
+	}
+
+	
+	/**
+	 * 读取的列数（最后一个映射列的列号+1）
+	 * 
+	 * @return
+	 */
+	int getColumnCount() {
+		return columnMask.length;
+	}
+
+	/**
+	 * 需要读取的列（下标为列号）
+	 * 
+	 * @return
+	 */
+	boolean[] getColumnMask() {
+		return columnMask;
 	}
 	
 	/**
@@ -338,15 +671,733 @@ public class ImportExcel<T> {
 	}
 
 	/**
-	 * 获取最后一个数据行号
+	 * 获取最后一个数据行号（含）
 	 * 
 	 * @return
 	 */
 	private int getLastDataRowNum() {
-		return this.sheet.getLastRowNum() + headerNum;
+		return this.sheet.getLastRowNum();
+	}
+
+	/**
+	 * 数据迭代器，按需读取并转换下一行
+	 */
+	private class DataIterator implements Iterator<T>, Closeable {
+
+		RowReader reader;
+
+		/**
+		 * 当前线程转换时使用的值处理器
+		 */
+		@SuppressWarnings("rawtypes")
+		final ValueHandler[] handlers = ExcelColumn.newHandlers(columns);
+
+		/**
+		 * 是否已打开（或已关闭）读取器
+		 */
+		private boolean opened;
+
+		private T nextData;
+
+		/**
+		 * 打开读取器，只执行一次
+		 */
+		void open() {
+			if (opened) {
+				return;
+			}
+			opened = true;
+			long start = stats != null ? System.nanoTime() : 0;
+			reader = openReader();
+			synchronized (openIterators) {
+				openIterators.add(this);
+			}
+			if (stats != null) {
+				phaseEnd(ExcelPhase.OPEN, openNanos + System.nanoTime() - start);
+				openNanos = 0;
+			}
+		}
+
+		/**
+		 * 读取下一行，统计时累加解析耗时
+		 */
+		boolean nextRow() throws IOException {
+			if (stats == null) {
+				return reader.next();
+			}
+			long start = System.nanoTime();
+			try {
+				return reader.next();
+			} finally {
+				stats.addNanos(ExcelPhase.PARSE, System.nanoTime() - start);
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (nextData != null) {
+				return true;
+			}
+			open();
+			if (reader == null) {
+				return false;
+			}
+			try {
+				while (nextRow()) {
+					checkCancelled();
+					T e = toBean(reader, handlers);
+					if (blankRowFilter == null || !blankRowFilter.isBlankRow(e)) {
+						nextData = e;
+						return true;
+					}
+				}
+			} catch (IOException e) {
+				close();
+				throw new RuntimeException(e);
+			} catch (RuntimeException e) {
+				close();
+				throw e;
+			}
+			close();
+			return false;
+		}
+
+		@Override
+		public T next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			T e = nextData;
+			nextData = null;
+			return e;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		/**
+		 * 释放读取器，可重复调用
+		 */
+		@Override
+		public void close() {
+			opened = true;
+			if (reader == null) {
+				return;
+			}
+			synchronized (openIterators) {
+				openIterators.remove(this);
+			}
+			try {
+				reader.close();
+			} catch (IOException e) {
+				log.warn(e.getMessage(), e);
+			} finally {
+				reader = null;
+			}
+			if (stats != null) {
+				phaseEnd(ExcelPhase.PARSE, 0);
+				phaseEnd(ExcelPhase.CONVERT, 0);
+			}
+		}
+	}
+
+	/**
+	 * 并行转换的数据迭代器
+	 * 
+	 * 读取仍在当前线程按行进行，每chunkSize行的值快照提交到线程池转换，结果按提交顺序取回，保持原始行序；
+	 * 同时在途的批次数有上限，内存占用不随总行数增长
+	 */
+	private class ParallelDataIterator extends DataIterator {
+
+		private final LinkedList<Future<List<T>>> pending = new LinkedList<Future<List<T>>>();
+
+		private final int maxPending = Math.max(2, convertParallelism * 2);
+
+		/**
+		 * 空闲的值处理器，同时执行的转换任务各取一组
+		 */
+		@SuppressWarnings("rawtypes")
+		private final Queue<ValueHandler[]> idleHandlers = new ConcurrentLinkedQueue<ValueHandler[]>();
+
+		private Iterator<T> current = Collections.<T> emptyList().iterator();
+
+		private boolean eof;
+
+		@Override
+		public boolean hasNext() {
+			try {
+				open();
+				while (!current.hasNext()) {
+					checkCancelled();
+					submit();
+					if (pending.isEmpty()) {
+						close();
+						return false;
+					}
+					current = pending.removeFirst().get().iterator();
+				}
+				return true;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				close();
+				throw new RuntimeException(e);
+			} catch (ExecutionException e) {
+				close();
+				if (e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) e.getCause();
+				}
+				throw new RuntimeException(e.getCause());
+			} catch (IOException e) {
+				close();
+				throw new RuntimeException(e);
+			} catch (RuntimeException e) {
+				close();
+				throw e;
+			}
+		}
+
+		@Override
+		public T next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			return current.next();
+		}
+
+		/**
+		 * 读取并提交批次，直到在途批次数达到上限
+		 */
+		private void submit() throws IOException {
+			boolean[] mask = getColumnMask();
+			while (!eof && pending.size() < maxPending) {
+				final List<RowSnapshot> rows = new ArrayList<RowSnapshot>(convertChunkSize);
+				long start = stats != null ? System.nanoTime() : 0;
+				while (rows.size() < convertChunkSize && reader.next()) {
+					rows.add(new RowSnapshot(reader, mask));
+				}
+				if (stats != null) {
+					stats.addNanos(ExcelPhase.PARSE, System.nanoTime() - start);
+				}
+				if (rows.size() < convertChunkSize) {
+					eof = true;
+				}
+				if (rows.isEmpty()) {
+					break;
+				}
+				pending.add(convertExecutor.submit(new Callable<List<T>>() {
+					@SuppressWarnings("rawtypes")
+					@Override
+					public List<T> call() {
+						ValueHandler[] taskHandlers = idleHandlers.poll();
+						if (taskHandlers == null) {
+							taskHandlers = ExcelColumn.newHandlers(columns);
+						}
+						try {
+							List<T> datas = new ArrayList<T>(rows.size());
+							for (RowSnapshot row : rows) {
+								T e = toBean(row, taskHandlers);
+								if (blankRowFilter == null || !blankRowFilter.isBlankRow(e)) {
+									datas.add(e);
+								}
+							}
+							return datas;
+						} finally {
+							idleHandlers.offer(taskHandlers);
+						}
+					}
+				}));
+			}
+		}
+
+		@Override
+		public void close() {
+			for (Future<List<T>> future : pending) {
+				future.cancel(true);
+			}
+			pending.clear();
+			eof = true;
+			super.close();
+		}
+	}
+
+	/**
+	 * 流水线导入的数据迭代器
+	 * 
+	 * 读取线程逐行解析，每chunkSize行的值快照为一块，依次放入顺序队列和转换队列；转换线程从转换队列取块转换，
+	 * 调用线程按顺序队列等待各块转换完成后取回，行序不变。两个队列均有界，调用线程处理较慢时读取和转换随之等待。
+	 * 任一阶段出错或取消时，其余阶段在当前行或当前块后停止，关闭时等待全部线程退出后才释放读取器
+	 */
+	private class PipelineDataIterator extends DataIterator {
+
+		/**
+		 * 等待队列时检查停止标志的间隔（毫秒）
+		 */
+		private static final long POLL_MILLIS = 50;
+
+		private final int converters = pipelineConverters;
+
+		private final int chunkSize = pipelineChunkSize;
+
+		private final BlockingQueue<Chunk> ordered;
+
+		private final BlockingQueue<Chunk> work;
+
+		/**
+		 * 读取线程和转换线程退出时计数
+		 */
+		private final CountDownLatch exited = new CountDownLatch(converters + 1);
+
+		/**
+		 * 转换线程的结束标记
+		 */
+		private final Chunk end = new Chunk(Collections.<RowSnapshot> emptyList(), true);
+
+		private volatile boolean stopping;
+
+		private volatile Throwable failure;
+
+		private Iterator<T> current = Collections.<T> emptyList().iterator();
+
+		private boolean eof;
+
+		PipelineDataIterator() {
+			open();
+			int capacity = Math.max(2, converters * 2);
+			ordered = new ArrayBlockingQueue<Chunk>(capacity);
+			work = new ArrayBlockingQueue<Chunk>(capacity);
+			start(new Runnable() {
+				@Override
+				public void run() {
+					parse();
+				}
+			});
+			for (int i = 0; i < converters; i++) {
+				start(new Runnable() {
+					@Override
+					public void run() {
+						convert();
+					}
+				});
+			}
+		}
+
+		private void start(final Runnable task) {
+			try {
+				pipelineExecutor.execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							task.run();
+						} catch (Throwable e) {
+							fail(e);
+						} finally {
+							exited.countDown();
+						}
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				exited.countDown();
+				fail(e);
+			}
+		}
+
+		private boolean isStopping() {
+			return stopping || cancelled;
+		}
+
+		/**
+		 * 记录第一个错误并停止各阶段
+		 */
+		private void fail(Throwable e) {
+			synchronized (this) {
+				if (failure == null) {
+					failure = e;
+				}
+			}
+			stopping = true;
+		}
+
+		/**
+		 * 读取线程：分块读取，读完后为每个转换线程放入结束标记
+		 */
+		private void parse() {
+			boolean[] mask = getColumnMask();
+			boolean more = true;
+			try {
+				while (more && !isStopping()) {
+					List<RowSnapshot> rows = new ArrayList<RowSnapshot>(chunkSize);
+					long start = stats != null ? System.nanoTime() : 0;
+					while (rows.size() < chunkSize && !isStopping() && (more = reader.next())) {
+						rows.add(new RowSnapshot(reader, mask));
+					}
+					if (stats != null) {
+						stats.addNanos(ExcelPhase.PARSE, System.nanoTime() - start);
+					}
+					Chunk chunk = new Chunk(rows, !more);
+					if (rows.isEmpty()) {
+						chunk.complete(Collections.<T> emptyList());
+					}
+					if (!put(ordered, chunk) || (!rows.isEmpty() && !put(work, chunk))) {
+						return;
+					}
+				}
+				for (int i = 0; i < converters; i++) {
+					if (!put(work, end)) {
+						return;
+					}
+				}
+			} catch (IOException e) {
+				fail(e);
+			} catch (InterruptedException e) {
+				fail(e);
+			}
+		}
+
+		/**
+		 * 转换线程，各自使用一组值处理器
+		 */
+		@SuppressWarnings("rawtypes")
+		private void convert() {
+			ValueHandler[] workerHandlers = ExcelColumn.newHandlers(columns);
+			try {
+				Chunk chunk;
+				while ((chunk = take(work)) != null && chunk != end) {
+					List<T> datas = new ArrayList<T>(chunk.rows.size());
+					for (RowSnapshot row : chunk.rows) {
+						if (isStopping()) {
+							return;
+						}
+						T e = toBean(row, workerHandlers);
+						if (blankRowFilter == null || !blankRowFilter.isBlankRow(e)) {
+							datas.add(e);
+						}
+					}
+					chunk.complete(datas);
+				}
+			} catch (InterruptedException e) {
+				fail(e);
+			}
+		}
+
+		/**
+		 * 放入队列，队列满时等待，停止时返回false
+		 */
+		private boolean put(BlockingQueue<Chunk> queue, Chunk chunk) throws InterruptedException {
+			while (!isStopping()) {
+				if (queue.offer(chunk, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * 从队列取出，队列空时等待，停止时返回null
+		 */
+		private Chunk take(BlockingQueue<Chunk> queue) throws InterruptedException {
+			while (!isStopping()) {
+				Chunk chunk = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+				if (chunk != null) {
+					return chunk;
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * 取消或其它阶段出错时抛出异常
+		 */
+		private void checkFailure() {
+			checkCancelled();
+			Throwable e = failure;
+			if (e instanceof RuntimeException) {
+				throw (RuntimeException) e;
+			}
+			if (e instanceof Error) {
+				throw (Error) e;
+			}
+			if (e != null) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			try {
+				while (!current.hasNext()) {
+					if (eof) {
+						close();
+						return false;
+					}
+					Chunk chunk = null;
+					while (chunk == null) {
+						checkFailure();
+						chunk = ordered.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+					}
+					while (!chunk.done.await(POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+						checkFailure();
+					}
+					eof = chunk.last;
+					current = chunk.datas.iterator();
+				}
+				return true;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				close();
+				throw new RuntimeException(e);
+			} catch (RuntimeException e) {
+				close();
+				throw e;
+			} catch (Error e) {
+				close();
+				throw e;
+			}
+		}
+
+		@Override
+		public T next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			return current.next();
+		}
+
+		@Override
+		public void close() {
+			stopping = true;
+			boolean interrupted = false;
+			while (true) {
+				try {
+					exited.await();
+					break;
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+			ordered.clear();
+			work.clear();
+			super.close();
+		}
+
+		/**
+		 * 一块数据行及其转换结果
+		 */
+		private class Chunk {
+
+			final List<RowSnapshot> rows;
+
+			/**
+			 * 是否为最后一块
+			 */
+			final boolean last;
+
+			final CountDownLatch done = new CountDownLatch(1);
+
+			volatile List<T> datas;
+
+			Chunk(List<RowSnapshot> rows, boolean last) {
+				this.rows = rows;
+				this.last = last;
+			}
+
+			void complete(List<T> datas) {
+				this.datas = datas;
+				done.countDown();
+			}
+		}
+	}
+
+	/**
+	 * 基于工作表对象的行读取器
+	 */
+	private class SheetRowReader implements RowReader {
+
+		private int rownum = getDataRowNum() - 1;
+
+		private Row row;
+
+		/**
+		 * 合并区域的值在首次访问时才读取
+		 */
+		private final MergedRegions.Cursor merged = mergedRegions.cursor(new MergedRegions.ValueLoader() {
+			@Override
+			public Object load(CellRangeAddress region) {
+				Row first = getRow(region.getFirstRow());
+				return first == null ? null : getCellValue(first.getCell(region.getFirstColumn()));
+			}
+		});
+
+		@Override
+		public boolean next() {
+			while (++rownum <= getLastDataRowNum()) {
+				row = getRow(rownum);
+				if (row != null) {
+					merged.advance(rownum);
+					return true;
+				}
+			}
+			row = null;
+			return false;
+		}
+
+		@Override
+		public int getRowNum() {
+			return rownum;
+		}
+
+		@Override
+		public Object getValue(int column) {
+			if (merged.isMerged(column)) {
+				return merged.getValue(column);
+			}
+			return getCellValue(row.getCell(column));
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+	/**
+	 * 释放未遍历完的迭代器和打开的文件；由数据流创建、已遍历完的导入器无需关闭
+	 */
+	@Override
+	public void close() throws IOException {
+		List<DataIterator> iterators;
+		synchronized (openIterators) {
+			iterators = new ArrayList<DataIterator>(openIterators);
+		}
+		for (DataIterator it : iterators) {
+			it.close();
+		}
+		if (resource != null) {
+			Closeable r = resource;
+			resource = null;
+			r.close();
+		}
+	}
+
+	private void closeQuietly() {
+		try {
+			close();
+		} catch (IOException e) {
+			log.warn(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * 设置是否按表头名称绑定列（默认按注解的sort顺序对应第1、2、3……列），须在读取数据前设置。
+	 * 绑定时读取标题行（headerNum），按{@link ExcelField#title()}匹配列号，表头中未映射的列不读取
+	 * 
+	 * @param bindByTitle
+	 */
+	public void setBindByTitle(boolean bindByTitle) {
+		this.bindByTitle = bindByTitle;
+	}
+
+	/**
+	 * 设置指标监听器，须在读取数据前设置；开始读取时回调OPEN（含构造时打开文档的耗时），
+	 * 读取结束或中止时回调PARSE和CONVERT。未设置时不计时
+	 * 
+	 * @param listener
+	 */
+	public void setListener(ExcelListener listener) {
+		this.listener = listener;
+		this.stats = listener == null ? null : new ExcelStats(clz);
 	}
 
 	public void setBlankRowFilter(BlankRowFilter<T> blankRowFilter) {
 		this.blankRowFilter = blankRowFilter;
 	}
+
+	/**
+	 * 启用并行转换：当前线程读取单元格值，类型转换、ValueHandler和setter调用在线程池中按批并行执行，结果保持原始行序。
+	 * 同时执行的转换任务各使用一组ValueHandler实例，无需线程安全；BlankRowFilter会被多个线程调用，须无状态
+	 * 
+	 * @param executor
+	 *            转换线程池，为null时关闭并行转换
+	 * @param parallelism
+	 *            线程池中用于转换的线程数，决定同时在途的批次数
+	 * @param chunkSize
+	 *            每批行数
+	 */
+	public void setParallelConversion(ExecutorService executor, int parallelism, int chunkSize) {
+		if (executor != null && (parallelism <= 0 || chunkSize <= 0)) {
+			throw new IllegalArgumentException("parallelism and chunkSize must be positive");
+		}
+		this.convertExecutor = executor;
+		this.convertParallelism = parallelism;
+		this.convertChunkSize = chunkSize;
+	}
+
+	/**
+	 * 启用流水线导入，作用于{@link #getDatas()}和{@link #getDatas(int, BatchHandler)}：一个读取线程解析，
+	 * converters个转换线程转换，调用线程按原始行序取回并分批回调，三者同时进行，之间的队列有界。
+	 * 线程池须能同时运行converters+1个任务；ValueHandler和BlankRowFilter的要求同{@link #setParallelConversion}
+	 * 
+	 * @param executor
+	 *            读取和转换线程池，为null时关闭流水线
+	 * @param converters
+	 *            转换线程数
+	 * @param chunkSize
+	 *            读取线程每块行数
+	 */
+	public void setPipeline(ExecutorService executor, int converters, int chunkSize) {
+		if (executor != null && (converters <= 0 || chunkSize <= 0)) {
+			throw new IllegalArgumentException("converters and chunkSize must be positive");
+		}
+		this.pipelineExecutor = executor;
+		this.pipelineConverters = converters;
+		this.pipelineChunkSize = chunkSize;
+	}
+
+	/**
+	 * 启用值字典，须在读取数据前设置：列中相等的导入值（字符串、数值包装类型、布尔）在各实体中共用一个实例，
+	 * 适用于商家号、状态、城市等重复值较多的列，可明显减少大批量导入保留的对象。每列各一个字典，
+	 * 最多保存maxSize个不同值，写满后不再加入新值
+	 * 
+	 * @param maxSize
+	 *            每列字典的容量，小于等于0时关闭
+	 * @param titles
+	 *            启用字典的列标题，为空时全部导入列
+	 */
+	public void setValueDictionary(int maxSize, String... titles) {
+		if (maxSize <= 0) {
+			this.dictionaries = null;
+			return;
+		}
+		Set<String> remaining = new HashSet<String>(Arrays.asList(titles));
+		ValueDictionary[] dicts = new ValueDictionary[columns.size()];
+		for (int i = 0; i < dicts.length; i++) {
+			String title = columns.get(i).getTitle();
+			if (titles.length == 0 || remaining.remove(title)) {
+				dicts[i] = new ValueDictionary(maxSize);
+			}
+		}
+		if (!remaining.isEmpty()) {
+			throw new IllegalArgumentException("Columns not found: " + remaining);
+		}
+		this.dictionaries = dicts;
+	}
+
+	/**
+	 * 取消读取，可在其它线程调用；正在进行和之后的读取抛出CancellationException，流水线的各阶段随之停止
+	 */
+	public void cancel() {
+		this.cancelled = true;
+	}
+
+	/**
+	 * 设置是否重新计算公式（默认计算）；由Excel保存的文件已缓存公式结果，可设为false跳过计算
+	 * 
+	 * @param evaluateFormula
+	 */
+	public void setEvaluateFormula(boolean evaluateFormula) {
+		this.evaluateFormula = evaluateFormula;
+	}
 }
@@ -0,0 +1,185 @@
+package cn.brent.commons.office.excel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.poi.ss.util.CellRangeAddress;
+
+/**
+ * 合并单元格索引
+ *
+ * 只保留与映射列相交的区域，并按首行排序；数据行按行号升序读取时，
+ * 由{@link Cursor}以扫描线方式维护“列号→当前行所在区域”，每个单元格的查找为O(1)
+ */
+final class MergedRegions {
+
+	/**
+	 * 合并区域取值方式
+	 */
+	interface ValueLoader {
+
+		/**
+		 * 读取区域左上角单元格的值
+		 */
+		Object load(CellRangeAddress region);
+
+	}
+
+	private final CellRangeAddress[] regions;
+
+	/**
+	 * 映射的列数
+	 */
+	private final int width;
+
+	MergedRegions(List<CellRangeAddress> list, int width) {
+		List<CellRangeAddress> mapped = new ArrayList<CellRangeAddress>();
+		for (CellRangeAddress cr : list) {
+			if (cr.getFirstColumn() < width) {
+				mapped.add(cr);
+			}
+		}
+		Collections.sort(mapped, new Comparator<CellRangeAddress>() {
+			public int compare(CellRangeAddress o1, CellRangeAddress o2) {
+				return Integer.compare(o1.getFirstRow(), o2.getFirstRow());
+			}
+		});
+		this.regions = mapped.toArray(new CellRangeAddress[mapped.size()]);
+		this.width = width;
+	}
+
+	/**
+	 * 在需要读取的列中加入与其相交区域的左上角列（流式读取时区域的值来自左上角单元格）
+	 * 
+	 * @return 新的列标记
+	 */
+	boolean[] withAnchors(boolean[] columns) {
+		boolean[] result = columns.clone();
+		for (CellRangeAddress cr : regions) {
+			int last = Math.min(cr.getLastColumn(), columns.length - 1);
+			for (int col = cr.getFirstColumn(); col <= last; col++) {
+				if (columns[col]) {
+					result[cr.getFirstColumn()] = true;
+					break;
+				}
+			}
+		}
+		return result;
+	}
+
+	boolean isEmpty() {
+		return regions.length == 0;
+	}
+
+	/**
+	 * 创建扫描游标，每个读取器各用一个
+	 *
+	 * @param loader
+	 *            区域取值方式，为null时由{@link Cursor#offer(int, Object)}提供左上角单元格的值
+	 */
+	Cursor cursor(ValueLoader loader) {
+		return new Cursor(loader);
+	}
+
+	final class Cursor {
+
+		private final ValueLoader loader;
+
+		/**
+		 * 列号 → 区域下标，-1表示不在合并区域内
+		 */
+		private final int[] byColumn = new int[width];
+
+		private final Object[] values = new Object[regions.length];
+
+		private final boolean[] loaded = new boolean[regions.length];
+
+		private final List<Integer> active = new ArrayList<Integer>();
+
+		private int next;
+
+		private int rownum = -1;
+
+		private Cursor(ValueLoader loader) {
+			this.loader = loader;
+			Arrays.fill(byColumn, -1);
+		}
+
+		/**
+		 * 移动到指定行（行号应递增，回退时从头扫描）
+		 */
+		void advance(int rownum) {
+			if (regions.length == 0) {
+				return;
+			}
+			if (rownum < this.rownum) {
+				for (int idx : active) {
+					fill(idx, -1);
+				}
+				active.clear();
+				next = 0;
+			}
+			this.rownum = rownum;
+			for (int i = active.size() - 1; i >= 0; i--) {
+				int idx = active.get(i);
+				if (regions[idx].getLastRow() < rownum) {
+					fill(idx, -1);
+					active.remove(i);
+				}
+			}
+			while (next < regions.length && regions[next].getFirstRow() <= rownum) {
+				if (regions[next].getLastRow() >= rownum) {
+					fill(next, next);
+					active.add(next);
+				}
+				next++;
+			}
+		}
+
+		private void fill(int idx, int val) {
+			CellRangeAddress cr = regions[idx];
+			int last = Math.min(cr.getLastColumn(), width - 1);
+			for (int col = cr.getFirstColumn(); col <= last; col++) {
+				byColumn[col] = val;
+			}
+		}
+
+		/**
+		 * 当前行的该列是否在合并区域内
+		 */
+		boolean isMerged(int column) {
+			return column < width && byColumn[column] >= 0;
+		}
+
+		/**
+		 * 合并区域的值（左上角单元格的值），首次访问时才读取
+		 */
+		Object getValue(int column) {
+			int idx = byColumn[column];
+			if (!loaded[idx] && loader != null) {
+				values[idx] = loader.load(regions[idx]);
+				loaded[idx] = true;
+			}
+			return values[idx];
+		}
+
+		/**
+		 * 提供当前行单元格的值，若为区域左上角则记录为区域的值
+		 */
+		void offer(int column, Object val) {
+			if (column >= width) {
+				return;
+			}
+			int idx = byColumn[column];
+			if (idx >= 0 && regions[idx].getFirstRow() == rownum && regions[idx].getFirstColumn() == column) {
+				values[idx] = val;
+				loaded[idx] = true;
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,220 @@
+package cn.brent.commons.office.excel;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 多工作表并行导入（支持“XLS”和“XLSX”格式）
+ *
+ * 文档只打开一次，每个工作表由一个流式导入器在线程池中并行解析；“XLSX”的共享字符串表由各工作表共用
+ */
+public class MultiSheetImportExcel implements Closeable {
+
+	private final SheetSource source;
+
+	/**
+	 * 标题行号
+	 */
+	private final int headerNum;
+
+	public MultiSheetImportExcel(InputStream is, int headerNum) {
+		this(true, is, headerNum);
+	}
+
+	/**
+	 * 读取数据流（不关闭），“XLSX”先写入临时文件，用完后调用{@link #close()}释放
+	 */
+	public MultiSheetImportExcel(boolean isXs, InputStream is, int headerNum) {
+		this.source = isXs ? new XlsxPackage(is) : new XlsPackage(is);
+		this.headerNum = headerNum;
+	}
+
+	/**
+	 * 直接读取文件（只读，不将整个文档复制到内存），用完后调用{@link #close()}释放文件
+	 */
+	public MultiSheetImportExcel(File file, int headerNum) {
+		this.source = ImportExcel.isXlsx(file) ? new XlsxPackage(file) : new XlsPackage(file);
+		this.headerNum = headerNum;
+	}
+
+	/**
+	 * 直接读取文件（只读，不将整个文档复制到内存），用完后调用{@link #close()}释放文件
+	 */
+	public MultiSheetImportExcel(Path path, int headerNum) {
+		this(path == null ? null : path.toFile(), headerNum);
+	}
+
+	/**
+	 * 设置“XLSX”共享字符串表（各工作表共用）保存在堆中的总长度上限（字符数，默认16M），超过时溢出到内存映射的临时文件，
+	 * 小于0表示不溢出；须在读取数据前设置，对“XLS”无效
+	 * 
+	 * @param threshold
+	 */
+	public void setSharedStringsThreshold(long threshold) {
+		if (source instanceof XlsxPackage) {
+			((XlsxPackage) source).setSpillThreshold(threshold);
+		}
+	}
+
+	public int getNumberOfSheets() {
+		return source.getNumberOfSheets();
+	}
+
+	public String getSheetName(int sheetIndex) {
+		return source.getSheetName(sheetIndex);
+	}
+
+	/**
+	 * 创建单个工作表的导入器（共用已打开的文档），可在并行导入前设置空白行过滤等
+	 */
+	public <T> StreamingImportExcel<T> getSheet(int sheetIndex, Class<T> clz) {
+		return new StreamingImportExcel<T>(clz, source, headerNum, sheetIndex, false);
+	}
+
+	/**
+	 * 所有工作表映射到同一实体类，并行导入
+	 *
+	 * @param executor
+	 *            解析线程池（可为ForkJoinPool），为null时临时创建
+	 * @return 按工作表顺序的数据
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> List<List<T>> getDatas(Class<T> clz, ExecutorService executor) {
+		List<ImportExcel<?>> importers = new ArrayList<ImportExcel<?>>();
+		for (int i = 0; i < getNumberOfSheets(); i++) {
+			importers.add(getSheet(i, clz));
+		}
+		List<List<T>> result = new ArrayList<List<T>>();
+		for (List<?> datas : getDatas(importers, executor)) {
+			result.add((List<T>) datas);
+		}
+		return result;
+	}
+
+	/**
+	 * 各工作表映射到不同实体类，并行导入
+	 *
+	 * @param classes
+	 *            工作表序号 → 实体类
+	 * @param executor
+	 *            解析线程池（可为ForkJoinPool），为null时临时创建
+	 * @return 工作表序号 → 数据
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public Map<Integer, List<?>> getDatas(Map<Integer, Class<?>> classes, ExecutorService executor) {
+		List<ImportExcel<?>> importers = new ArrayList<ImportExcel<?>>();
+		for (Map.Entry<Integer, Class<?>> entry : classes.entrySet()) {
+			importers.add(getSheet(entry.getKey(), (Class) entry.getValue()));
+		}
+		List<List<?>> datas = getDatas(importers, executor);
+		Map<Integer, List<?>> result = new LinkedHashMap<Integer, List<?>>();
+		int i = 0;
+		for (Integer sheetIndex : classes.keySet()) {
+			result.put(sheetIndex, datas.get(i++));
+		}
+		return result;
+	}
+
+	/**
+	 * 并行执行多个导入器
+	 *
+	 * @param importers
+	 *            由{@link #getSheet(int, Class)}创建的导入器
+	 * @param executor
+	 *            解析线程池（可为ForkJoinPool），为null时临时创建
+	 * @return 与importers顺序一致的数据；某个导入器失败时取消其余导入器，等全部退出后抛出其异常
+	 */
+	public List<List<?>> getDatas(List<? extends ImportExcel<?>> importers, ExecutorService executor) {
+		if (importers.isEmpty()) {
+			return Collections.emptyList();
+		}
+		ExecutorService pool = executor;
+		if (pool == null) {
+			pool = Executors.newFixedThreadPool(Math.min(importers.size(), Runtime.getRuntime().availableProcessors()));
+		}
+		List<Future<List<?>>> futures = new ArrayList<Future<List<?>>>();
+		boolean completed = false;
+		try {
+			for (final ImportExcel<?> importer : importers) {
+				futures.add(pool.submit(new Callable<List<?>>() {
+					@Override
+					public List<?> call() {
+						return importer.getDatas();
+					}
+				}));
+			}
+			List<List<?>> result = new ArrayList<List<?>>();
+			for (Future<List<?>> future : futures) {
+				result.add(future.get());
+			}
+			completed = true;
+			return result;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		} finally {
+			if (!completed) {
+				// 其它工作表停止读取，等全部退出后才返回，调用方随后close()时不会有线程仍在读取共享字符串
+				for (ImportExcel<?> importer : importers) {
+					importer.cancel();
+				}
+				awaitAll(futures);
+			}
+			if (executor == null) {
+				pool.shutdown();
+			}
+		}
+	}
+
+	/**
+	 * 等待全部任务结束，忽略其结果；不中断任务（中断会关闭正在读取的文件通道）
+	 */
+	private static void awaitAll(List<? extends Future<?>> futures) {
+		boolean interrupted = false;
+		for (Future<?> future : futures) {
+			while (true) {
+				try {
+					future.get();
+					break;
+				} catch (InterruptedException e) {
+					interrupted = true;
+				} catch (ExecutionException e) {
+					break;
+				} catch (CancellationException e) {
+					break;
+				}
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * 关闭文档，由{@link #getSheet(int, Class)}创建的导入器随之失效
+	 */
+	@Override
+	public void close() throws IOException {
+		source.close();
+	}
+
+}
@@ -0,0 +1,149 @@
+package cn.brent.commons.office.excel;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * 属性访问器
+ *
+ * 在构建映射时解析一次getter/setter方法，之后每行以Method.invoke调用已缓存的方法，省去按名称反复查找方法；
+ * 有编译期生成的映射时直接调用生成的代码。未使用MethodHandle：Java 7中非常量的MethodHandle无法内联，
+ * 保存在字段中调用并不比Method.invoke快
+ */
+abstract class PropertyAccessor {
+
+	abstract Object get(Object bean);
+
+	abstract void set(Object bean, Object val);
+
+	/**
+	 * 注解在字段上，按“get/set+字段名”查找访问方法
+	 */
+	static PropertyAccessor forField(Class<?> cls, Field f) {
+		String name = StringUtils.capitalize(f.getName());
+		Method getter = findMethod(cls, "get" + name);
+		if (getter == null) {
+			getter = findMethod(cls, "is" + name);
+		}
+		Method setter = findMethod(cls, "set" + name, f.getType());
+		if (setter == null) {
+			setter = findSetter(cls, "set" + name);
+		}
+		return new MethodAccessor(f.getName(), getter, setter);
+	}
+
+	/**
+	 * 注解在方法上，getter对应同名的set方法
+	 *
+	 * @param valType
+	 *            属性类型
+	 */
+	static PropertyAccessor forMethod(Class<?> cls, Method m, Class<?> valType) {
+		String mthodName = m.getName();
+		if (mthodName.startsWith("get")) {
+			mthodName = "set" + StringUtils.substringAfter(mthodName, "get");
+		}
+		Method getter = m.getParameterTypes().length == 0 ? makeAccessible(m) : null;
+		return new MethodAccessor(m.getName(), getter, findMethod(cls, mthodName, valType));
+	}
+
+	/**
+	 * 编译期生成的访问代码
+	 */
+	static PropertyAccessor forColumn(final ExcelMapper.Column<?> column) {
+		return new PropertyAccessor() {
+			@SuppressWarnings({ "rawtypes", "unchecked" })
+			@Override
+			Object get(Object bean) {
+				return ((ExcelMapper.Column) column).get(bean);
+			}
+
+			@SuppressWarnings({ "rawtypes", "unchecked" })
+			@Override
+			void set(Object bean, Object val) {
+				((ExcelMapper.Column) column).set(bean, val);
+			}
+		};
+	}
+
+	private static final class MethodAccessor extends PropertyAccessor {
+
+		private final String name;
+
+		private final Method getter;
+
+		private final Method setter;
+
+		MethodAccessor(String name, Method getter, Method setter) {
+			this.name = name;
+			this.getter = getter;
+			this.setter = setter;
+		}
+
+		@Override
+		Object get(Object bean) {
+			if (getter == null) {
+				throw new IllegalArgumentException("Could not find getter [" + name + "] on target [" + bean + "]");
+			}
+			return invoke(getter, bean);
+		}
+
+		@Override
+		void set(Object bean, Object val) {
+			if (setter == null) {
+				throw new IllegalArgumentException("Could not find setter [" + name + "] on target [" + bean + "]");
+			}
+			invoke(setter, bean, val);
+		}
+
+		private static Object invoke(Method m, Object bean, Object... args) {
+			try {
+				return m.invoke(bean, args);
+			} catch (InvocationTargetException e) {
+				throw new RuntimeException(e.getTargetException());
+			} catch (IllegalAccessException e) {
+				throw new IllegalArgumentException(e);
+			}
+		}
+
+	}
+
+	/**
+	 * 沿继承链查找方法
+	 */
+	private static Method findMethod(Class<?> cls, String name, Class<?>... types) {
+		for (Class<?> c = cls; c != null && c != Object.class; c = c.getSuperclass()) {
+			try {
+				return makeAccessible(c.getDeclaredMethod(name, types));
+			} catch (NoSuchMethodException e) {
+				// try super class
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * 沿继承链查找名称匹配的单参数方法
+	 */
+	private static Method findSetter(Class<?> cls, String name) {
+		for (Class<?> c = cls; c != null && c != Object.class; c = c.getSuperclass()) {
+			for (Method m : c.getDeclaredMethods()) {
+				if (m.getName().equals(name) && m.getParameterTypes().length == 1) {
+					return makeAccessible(m);
+				}
+			}
+		}
+		return null;
+	}
+
+	private static Method makeAccessible(Method m) {
+		if (!m.isAccessible()) {
+			m.setAccessible(true);
+		}
+		return m;
+	}
+
+}
@@ -0,0 +1,18 @@
+package cn.brent.commons.office.excel;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * 数据行读取器（按行号升序依次读取标题行之后的数据行）
+ */
+interface RowReader extends RowValues, Closeable {
+
+	/**
+	 * 读取下一行
+	 * 
+	 * @return 没有更多数据行时返回false
+	 */
+	boolean next() throws IOException;
+
+}
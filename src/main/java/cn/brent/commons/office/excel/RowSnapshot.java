@@ -0,0 +1,36 @@
+package cn.brent.commons.office.excel;
+
+/**
+ * 行值快照，读取器移动到下一行后仍可使用，用于在其它线程中转换
+ */
+final class RowSnapshot implements RowValues {
+
+	private final int rownum;
+
+	private final Object[] values;
+
+	/**
+	 * @param columns
+	 *            需要复制的列（下标为列号）
+	 */
+	RowSnapshot(RowValues row, boolean[] columns) {
+		this.rownum = row.getRowNum();
+		this.values = new Object[columns.length];
+		for (int i = 0; i < columns.length; i++) {
+			if (columns[i]) {
+				values[i] = row.getValue(i);
+			}
+		}
+	}
+
+	@Override
+	public int getRowNum() {
+		return rownum;
+	}
+
+	@Override
+	public Object getValue(int column) {
+		return values[column];
+	}
+
+}
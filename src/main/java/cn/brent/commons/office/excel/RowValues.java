@@ -0,0 +1,22 @@
+package cn.brent.commons.office.excel;
+
+/**
+ * 一行单元格的值
+ */
+interface RowValues {
+
+	/**
+	 * 行号（从0开始）
+	 */
+	int getRowNum();
+
+	/**
+	 * 获取单元格值（已处理合并单元格）
+	 * 
+	 * @param column
+	 *            列号
+	 * @return 单元格不存在时返回null
+	 */
+	Object getValue(int column);
+
+}
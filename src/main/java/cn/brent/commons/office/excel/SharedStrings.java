@@ -0,0 +1,296 @@
+package cn.brent.commons.office.excel;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Method;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * “XLSX”共享字符串表（只读）
+ *
+ * 字符串总长度不超过阈值时保存在堆中；超过后全部以“长度+UTF-8”写入临时文件并映射到内存，
+ * 堆中只保留各字符串的偏移量，按序号查找仍为O(1)，取值时才解码，最近访问的字符串有少量缓存。
+ * 可在多个线程中同时读取；{@link #close()}释放映射并删除临时文件，须在全部读取结束后调用
+ */
+final class SharedStrings implements Closeable {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	/**
+	 * 映射段大小，字符串不跨段存放
+	 */
+	private static final int SEGMENT_SIZE = 1 << 30;
+
+	private static final int CACHE_SIZE = 1024;
+
+	/**
+	 * 默认溢出阈值（字符数）
+	 */
+	static final long DEFAULT_SPILL_THRESHOLD = 16 * 1024 * 1024;
+
+	/**
+	 * 堆中保存的字符串，溢出到文件后为null
+	 */
+	private List<String> strings = new ArrayList<String>();
+
+	/**
+	 * 堆中字符串的总长度（字符数）
+	 */
+	private long heapChars;
+
+	private final long spillThreshold;
+
+	/**
+	 * 临时文件，已删除时为null
+	 */
+	private File file;
+
+	private DataOutputStream out;
+
+	/**
+	 * 各字符串在文件中的偏移
+	 */
+	private long[] offsets;
+
+	private int count;
+
+	private long position;
+
+	private MappedByteBuffer[] segments;
+
+	private final Entry[] cache = new Entry[CACHE_SIZE];
+
+	private static final class Entry {
+
+		final int index;
+
+		final String value;
+
+		Entry(int index, String value) {
+			this.index = index;
+			this.value = value;
+		}
+
+	}
+
+	/**
+	 * @param in
+	 *            sharedStrings.xml，为null表示没有共享字符串
+	 * @param spillThreshold
+	 *            堆中保存的字符串总长度（字符数）上限，小于0表示不溢出到文件
+	 */
+	SharedStrings(InputStream in, long spillThreshold) throws IOException {
+		this.spillThreshold = spillThreshold;
+		if (in == null) {
+			return;
+		}
+		try {
+			parse(XlsxSheetReader.XML_FACTORY.createXMLStreamReader(in));
+			if (out != null) {
+				finishSpill();
+			}
+		} catch (XMLStreamException e) {
+			throw new IOException(e);
+		} finally {
+			if (out != null) {
+				out.close();
+			}
+			if (file != null) {
+				deleteFile();
+			}
+		}
+	}
+
+	private void parse(XMLStreamReader xml) throws XMLStreamException, IOException {
+		StringBuilder sb = new StringBuilder();
+		while (xml.hasNext()) {
+			int event = xml.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				String name = xml.getLocalName();
+				if ("si".equals(name)) {
+					sb.setLength(0);
+				} else if ("t".equals(name)) {
+					sb.append(xml.getElementText());
+				} else if ("rPh".equals(name)) {
+					// 忽略拼音
+					skipElement(xml);
+				}
+			} else if (event == XMLStreamConstants.END_ELEMENT && "si".equals(xml.getLocalName())) {
+				add(sb.toString());
+			}
+		}
+		xml.close();
+	}
+
+	private static void skipElement(XMLStreamReader xml) throws XMLStreamException {
+		int depth = 1;
+		while (depth > 0 && xml.hasNext()) {
+			int event = xml.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				depth++;
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				depth--;
+			}
+		}
+	}
+
+	private void add(String s) throws IOException {
+		if (out != null) {
+			write(s);
+			return;
+		}
+		strings.add(s);
+		heapChars += s.length();
+		if (spillThreshold >= 0 && heapChars > spillThreshold) {
+			startSpill();
+		}
+	}
+
+	/**
+	 * 将已读取的字符串移到临时文件，之后的字符串直接写入文件
+	 */
+	private void startSpill() throws IOException {
+		file = File.createTempFile("sst", ".tmp");
+		out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 64 * 1024));
+		offsets = new long[Math.max(1024, strings.size() * 2)];
+		List<String> heap = strings;
+		strings = null;
+		for (String s : heap) {
+			write(s);
+		}
+	}
+
+	private void write(String s) throws IOException {
+		byte[] bytes = s.getBytes(UTF_8);
+		long segmentEnd = (position / SEGMENT_SIZE + 1) * SEGMENT_SIZE;
+		if (position + 4 + bytes.length > segmentEnd) {
+			// 补齐到下一段
+			for (long i = position; i < segmentEnd; i++) {
+				out.write(0);
+			}
+			position = segmentEnd;
+		}
+		if (count == offsets.length) {
+			offsets = Arrays.copyOf(offsets, offsets.length * 2);
+		}
+		offsets[count++] = position;
+		out.writeInt(bytes.length);
+		out.write(bytes);
+		position += 4 + bytes.length;
+	}
+
+	private void finishSpill() throws IOException {
+		out.close();
+		out = null;
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			segments = new MappedByteBuffer[(int) ((position + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+			for (int i = 0; i < segments.length; i++) {
+				long start = (long) i * SEGMENT_SIZE;
+				segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, position - start));
+			}
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * 映射建立后不再需要文件名，能删除的系统上立即删除，否则在{@link #close()}中删除
+	 */
+	private void deleteFile() {
+		if (file.delete()) {
+			file = null;
+		}
+	}
+
+	/**
+	 * 释放映射并删除临时文件，之后不能再读取
+	 */
+	@Override
+	public synchronized void close() {
+		if (segments != null) {
+			for (MappedByteBuffer segment : segments) {
+				unmap(segment);
+			}
+			segments = null;
+		}
+		if (file != null) {
+			if (!file.delete()) {
+				file.deleteOnExit();
+			}
+			file = null;
+		}
+	}
+
+	/**
+	 * 立即解除映射（Java 7/8的DirectByteBuffer.cleaner()）；不支持时在映射对象被回收后解除
+	 */
+	private static void unmap(MappedByteBuffer buffer) {
+		try {
+			Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+			cleanerMethod.setAccessible(true);
+			Object cleaner = cleanerMethod.invoke(buffer);
+			if (cleaner != null) {
+				cleaner.getClass().getMethod("clean").invoke(cleaner);
+			}
+		} catch (Exception e) {
+			// wait for GC
+		}
+	}
+
+	/**
+	 * 是否已溢出到临时文件
+	 */
+	boolean isSpilled() {
+		return strings == null;
+	}
+
+	int getCount() {
+		return strings != null ? strings.size() : count;
+	}
+
+	String getEntryAt(int idx) {
+		if (strings != null) {
+			return strings.get(idx);
+		}
+		if (idx < 0 || idx >= count) {
+			throw new IndexOutOfBoundsException("Shared string index: " + idx);
+		}
+		MappedByteBuffer[] segments = this.segments;
+		if (segments == null) {
+			throw new IllegalStateException("Shared strings closed");
+		}
+		int slot = idx & (CACHE_SIZE - 1);
+		Entry entry = cache[slot];
+		if (entry != null && entry.index == idx) {
+			return entry.value;
+		}
+		long start = offsets[idx];
+		MappedByteBuffer segment = segments[(int) (start / SEGMENT_SIZE)];
+		int offset = (int) (start % SEGMENT_SIZE);
+		byte[] bytes = new byte[segment.getInt(offset)];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = segment.get(offset + 4 + i);
+		}
+		String value = new String(bytes, UTF_8);
+		cache[slot] = new Entry(idx, value);
+		return value;
+	}
+
+}
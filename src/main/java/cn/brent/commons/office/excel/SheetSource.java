@@ -0,0 +1,33 @@
+package cn.brent.commons.office.excel;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.poi.ss.util.CellRangeAddress;
+
+/**
+ * 已打开的文档，供流式导入按工作表创建行读取器
+ */
+interface SheetSource extends Closeable {
+
+	int getNumberOfSheets();
+
+	String getSheetName(int sheetIndex);
+
+	/**
+	 * 扫描工作表中的合并单元格区域
+	 */
+	List<CellRangeAddress> readMergedRegions(int sheetIndex) throws IOException;
+
+	/**
+	 * 打开工作表的行读取器
+	 * 
+	 * @param headerNum
+	 *            标题行号，只返回其后的数据行
+	 * @param columns
+	 *            需要读取的列（下标为列号），只解码为true的列
+	 */
+	RowReader openReader(int sheetIndex, int headerNum, boolean[] columns, MergedRegions mergedRegions) throws IOException;
+
+}
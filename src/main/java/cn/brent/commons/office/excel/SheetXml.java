@@ -0,0 +1,184 @@
+package cn.brent.commons.office.excel;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.apache.poi.Version;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+
+/**
+ * 直接输出“XLSX”工作表XML的工具方法
+ */
+final class SheetXml {
+
+	static final String SHEET_DATA_END = "</sheetData>";
+
+	private SheetXml() {
+	}
+
+	/**
+	 * 做过验证的POI版本：此版本中工作薄多次write时部件内容会重复追加，工作薄只能在最后写出一次，
+	 * 单独写出工作表只能反射调用protected的XSSFSheet.write
+	 */
+	private static final String PATCHED_POI_VERSION = "3.9";
+
+	/**
+	 * 仅POI 3.9下取得的XSSFSheet.write，其它版本为null
+	 */
+	private static final Method SHEET_WRITE = sheetWriteMethod();
+
+	private static Method sheetWriteMethod() {
+		if (!PATCHED_POI_VERSION.equals(Version.getVersion())) {
+			return null;
+		}
+		try {
+			Method write = XSSFSheet.class.getDeclaredMethod("write", OutputStream.class);
+			write.setAccessible(true);
+			return write;
+		} catch (Exception e) {
+			throw new IllegalStateException("XSSFSheet.write not accessible in POI " + PATCHED_POI_VERSION, e);
+		}
+	}
+
+	/**
+	 * 单独写出一个工作表的XML；
+	 * POI 3.9反射调用XSSFSheet.write，其它版本写出整个工作薄后取出工作表条目
+	 */
+	static String sheetXml(XSSFSheet sheet) throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		if (SHEET_WRITE == null) {
+			bos.write(serialize(sheet.getWorkbook()).get(entryName(sheet)));
+		} else {
+			try {
+				SHEET_WRITE.invoke(sheet, bos);
+			} catch (InvocationTargetException e) {
+				throw new IOException(e.getTargetException());
+			} catch (IllegalAccessException e) {
+				throw new RuntimeException(e);
+			}
+		}
+		String xml = new String(bos.toByteArray(), "UTF-8");
+		if (xml.indexOf(SHEET_DATA_END) < 0) {
+			xml = xml.replace("<sheetData/>", "<sheetData>" + SHEET_DATA_END);
+		}
+		return xml;
+	}
+
+	/**
+	 * 工作表部件在压缩包中的条目名
+	 */
+	static String entryName(XSSFSheet sheet) {
+		return sheet.getPackagePart().getPartName().getName().substring(1);
+	}
+
+	/**
+	 * 将工作薄写为压缩包条目
+	 */
+	static Map<String, byte[]> serialize(Workbook wb) throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		wb.write(bos);
+		Map<String, byte[]> entries = new LinkedHashMap<String, byte[]>();
+		ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(bos.toByteArray()));
+		ZipEntry entry;
+		byte[] buf = new byte[8192];
+		while ((entry = zis.getNextEntry()) != null) {
+			ByteArrayOutputStream content = new ByteArrayOutputStream();
+			int n;
+			while ((n = zis.read(buf)) > 0) {
+				content.write(buf, 0, n);
+			}
+			entries.put(entry.getName(), content.toByteArray());
+		}
+		return entries;
+	}
+
+	/**
+	 * 写出一个数据单元格：整数、浮点数、日期为数值，其余为内联字符串
+	 * 
+	 * @param column
+	 *            列名，如“A”
+	 * @param row
+	 *            行号（从1开始）
+	 * @param style
+	 *            样式序号
+	 */
+	static void writeCell(Writer out, String column, String row, int style, Object val) throws IOException {
+		out.write("<c r=\"");
+		out.write(column);
+		out.write(row);
+		out.write("\" s=\"");
+		out.write(String.valueOf(style));
+		if (val instanceof Integer || val instanceof Long) {
+			out.write("\"><v>");
+			out.write(val.toString());
+			out.write("</v></c>");
+		} else if ((val instanceof Double || val instanceof Float) && !isSpecial(((Number) val).doubleValue())) {
+			out.write("\"><v>");
+			out.write(Double.toString(((Number) val).doubleValue()));
+			out.write("</v></c>");
+		} else if (val instanceof Date) {
+			out.write("\"><v>");
+			out.write(Double.toString(DateUtil.getExcelDate((Date) val)));
+			out.write("</v></c>");
+		} else {
+			writeInlineString(out, val == null ? "" : val.toString());
+		}
+	}
+
+	/**
+	 * 写出内联字符串的类型和值（接在单元格的s属性值之后）
+	 */
+	static void writeInlineString(Writer out, String s) throws IOException {
+		out.write("\" t=\"inlineStr\"><is><t");
+		if (!s.isEmpty() && (Character.isWhitespace(s.charAt(0)) || Character.isWhitespace(s.charAt(s.length() - 1)))) {
+			out.write(" xml:space=\"preserve\"");
+		}
+		out.write('>');
+		writeEscaped(out, s);
+		out.write("</t></is></c>");
+	}
+
+	private static boolean isSpecial(double d) {
+		return Double.isNaN(d) || Double.isInfinite(d);
+	}
+
+	/**
+	 * 转义XML特殊字符，去掉XML不允许的控制字符
+	 */
+	static void writeEscaped(Writer out, String s) throws IOException {
+		for (int i = 0; i < s.length(); i++) {
+			char ch = s.charAt(i);
+			switch (ch) {
+			case '<':
+				out.write("&lt;");
+				break;
+			case '>':
+				out.write("&gt;");
+				break;
+			case '&':
+				out.write("&amp;");
+				break;
+			case '"':
+				out.write("&quot;");
+				break;
+			default:
+				if (ch >= 0x20 || ch == '\t' || ch == '\n' || ch == '\r') {
+					out.write(ch);
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,164 @@
+package cn.brent.commons.office.excel;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+
+/**
+ * 边生成边输出的“XLSX”导出
+ *
+ * 数据从迭代器逐行拉取，直接以XML写入输出流中的压缩包，不在内存或临时文件中保留数据行；
+ * 输出流写入阻塞时不再拉取数据，首字节时间和内存占用与数据量无关。
+ * 样式、标题和表头由{@link ExportExcel}在工作薄模板中生成，工作表写满时同样自动新建工作表；
+ * 列宽写在工作表XML的开头，第一个工作表按表头和日期格式估算，续表按已写出的数据估算
+ */
+public class StreamingExportExcel<T> extends ExportExcel<T> {
+
+	/**
+	 * 各列的单元格引用前缀（列名）
+	 */
+	private String[] columnNames = new String[0];
+
+	/**
+	 * 构造函数
+	 *
+	 * @param cls
+	 *            实体对象，通过annotation.ExportField获取标题
+	 * @param title
+	 *            表格标题，传“空值”，表示无标题
+	 */
+	public StreamingExportExcel(Class<?> cls, String title) {
+		super(cls, true, title);
+	}
+
+	/**
+	 * 从迭代器拉取数据并写入输出流，写完后不关闭输出流
+	 *
+	 * @param data
+	 *            数据，可为{@link ExportQueue}以接收其它线程生产的数据；写完或出错后关闭可关闭的数据来源
+	 * @param os
+	 *            输出数据流
+	 */
+	public void write(Iterator<? extends T> data, OutputStream os) throws IOException {
+		try {
+			writeData(data, os);
+		} finally {
+			ExportQueue.closeSource(data);
+		}
+	}
+
+	private void writeData(Iterator<? extends T> data, OutputStream os) throws IOException {
+		ExcelStats stats = getStats();
+		long start = stats != null ? System.nanoTime() : 0;
+		long rows = 0;
+		long cells = 0;
+		CountingOutputStream counter = null;
+		if (stats != null) {
+			counter = new CountingOutputStream(os);
+			os = counter;
+		}
+		ZipOutputStream zos = new ZipOutputStream(os);
+		Writer out = new BufferedWriter(new OutputStreamWriter(zos, "UTF-8"), 64 * 1024);
+		Set<String> written = new HashSet<String>();
+		SheetTemplate template = new SheetTemplate();
+		zos.putNextEntry(new ZipEntry(template.name));
+		out.write(template.head);
+		int rownum = getRownum();
+		while (data.hasNext()) {
+			if (rownum >= getMaxRowsPerSheet()) {
+				out.write(template.tail);
+				out.flush();
+				zos.closeEntry();
+				written.add(template.name);
+				createSheet();
+				template = new SheetTemplate();
+				zos.putNextEntry(new ZipEntry(template.name));
+				out.write(template.head);
+				rownum = getRownum();
+			}
+			Object[] values = getRowValues(data.next());
+			observeRow(values);
+			writeRow(out, rownum++, values);
+			rows++;
+			cells += values.length;
+		}
+		out.write(template.tail);
+		out.flush();
+		zos.closeEntry();
+		written.add(template.name);
+		// 工作薄其余部分（含全部工作表的共享字符串和样式）
+		for (Map.Entry<String, byte[]> entry : SheetXml.serialize(getWorkbook()).entrySet()) {
+			if (!written.contains(entry.getKey())) {
+				zos.putNextEntry(new ZipEntry(entry.getKey()));
+				zos.write(entry.getValue());
+				zos.closeEntry();
+			}
+		}
+		zos.finish();
+		zos.flush();
+		if (stats != null) {
+			// 取值和写出交替进行，全部计入WRITE
+			stats.addRows(rows, cells);
+			stats.addBytes(counter.getCount());
+			phaseEnd(ExcelPhase.WRITE, System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * 当前工作表的XML，在sheetData结束处分为前后两段，数据行写在两段之间
+	 */
+	private class SheetTemplate {
+
+		final String name;
+
+		final String head;
+
+		final String tail;
+
+		SheetTemplate() throws IOException {
+			XSSFSheet sheet = (XSSFSheet) getSheet();
+			name = SheetXml.entryName(sheet);
+			String xml = SheetXml.sheetXml(sheet);
+			int idx = xml.indexOf(SheetXml.SHEET_DATA_END);
+			head = xml.substring(0, idx);
+			tail = xml.substring(idx);
+		}
+
+	}
+
+	private void writeRow(Writer out, int rownum, Object[] values) throws IOException {
+		String r = String.valueOf(rownum + 1);
+		out.write("<row r=\"");
+		out.write(r);
+		out.write("\">");
+		for (int col = 0; col < values.length; col++) {
+			Object val = values[col];
+			SheetXml.writeCell(out, columnName(col), r, getCellStyle(col, val instanceof Date).getIndex(), val);
+		}
+		out.write("</row>");
+	}
+
+	private String columnName(int col) {
+		if (col >= columnNames.length) {
+			String[] names = new String[Math.max(col + 1, columnNames.length * 2)];
+			for (int i = 0; i < names.length; i++) {
+				names[i] = CellReference.convertNumToColString(i);
+			}
+			columnNames = names;
+		}
+		return columnNames[col];
+	}
+
+}
@@ -0,0 +1,129 @@
+package cn.brent.commons.office.excel;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.util.CellRangeAddress;
+
+/**
+ * 流式导入Excel文件（支持“XLS”和“XLSX”格式）
+ *
+ * 不构建工作薄对象：“XLSX”通过XSSFReader逐行解析工作表XML，“XLS”逐条读取BIFF记录，
+ * 内存占用与数据行数无关（“XLSX”数据流先写入临时文件，“XLS”数据流读入内存，最多65536行）；公式单元格总是取文件中缓存的计算结果（{@link #setEvaluateFormula(boolean)}无效），
+ * 其余取值规则与{@link ImportExcel}一致
+ */
+public class StreamingImportExcel<T> extends ImportExcel<T> {
+
+	private final SheetSource source;
+
+	private final int sheetIndex;
+
+	/**
+	 * 是否由本导入器打开文档，关闭时一并关闭
+	 */
+	private final boolean ownSource;
+
+	public StreamingImportExcel(Class<T> clz, InputStream is, int headerNum, int sheetIndex) {
+		this(clz, true, is, headerNum, sheetIndex);
+	}
+
+	/**
+	 * 读取数据流（不关闭），“XLSX”先写入临时文件，用完后调用{@link #close()}释放
+	 */
+	public StreamingImportExcel(Class<T> clz, boolean isXs, InputStream is, int headerNum, int sheetIndex) {
+		this(clz, isXs ? new XlsxPackage(is) : new XlsPackage(is), headerNum, sheetIndex, true);
+	}
+
+	/**
+	 * 直接读取文件（只读，不将整个文档复制到内存），用完后调用{@link #close()}释放文件
+	 */
+	public StreamingImportExcel(Class<T> clz, File file, int headerNum, int sheetIndex) {
+		this(clz, isXlsx(file) ? new XlsxPackage(file) : new XlsPackage(file), headerNum, sheetIndex, true);
+	}
+
+	/**
+	 * 直接读取文件（只读，不将整个文档复制到内存），用完后调用{@link #close()}释放文件
+	 */
+	public StreamingImportExcel(Class<T> clz, Path path, int headerNum, int sheetIndex) {
+		this(clz, path == null ? null : path.toFile(), headerNum, sheetIndex);
+	}
+
+	/**
+	 * 使用已打开的文档
+	 * 
+	 * @param ownSource
+	 *            关闭导入器时是否关闭文档
+	 */
+	StreamingImportExcel(Class<T> clz, SheetSource source, int headerNum, int sheetIndex, boolean ownSource) {
+		super(clz, source instanceof XlsxPackage, headerNum);
+		this.source = source;
+		this.sheetIndex = sheetIndex;
+		this.ownSource = ownSource;
+		log.debug("Initialize success.");
+	}
+
+	@Override
+	public void close() throws IOException {
+		super.close();
+		if (ownSource) {
+			source.close();
+		}
+	}
+
+	/**
+	 * 设置“XLSX”共享字符串表保存在堆中的总长度上限（字符数，默认16M），超过时溢出到内存映射的临时文件，
+	 * 小于0表示不溢出；须在读取数据前设置，对“XLS”无效
+	 * 
+	 * @param threshold
+	 */
+	public void setSharedStringsThreshold(long threshold) {
+		if (source instanceof XlsxPackage) {
+			((XlsxPackage) source).setSpillThreshold(threshold);
+		}
+	}
+
+	@Override
+	RowReader openReader() {
+		bindColumns();
+		try {
+			if (mergedRegions == null) {
+				// 合并单元格位于单元格数据之后，需预先扫描
+				mergedRegions = new MergedRegions(source.readMergedRegions(sheetIndex), getColumnCount());
+			}
+			return source.openReader(sheetIndex, headerNum, mergedRegions.withAnchors(getColumnMask()), mergedRegions);
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	List<String> readHeader() {
+		boolean[] columns = new boolean[(isXS ? SpreadsheetVersion.EXCEL2007 : SpreadsheetVersion.EXCEL97).getMaxColumns()];
+		Arrays.fill(columns, true);
+		MergedRegions none = new MergedRegions(Collections.<CellRangeAddress> emptyList(), 0);
+		List<String> header = new ArrayList<String>();
+		try {
+			RowReader reader = source.openReader(sheetIndex, headerNum - 1, columns, none);
+			try {
+				if (reader.next() && reader.getRowNum() == headerNum) {
+					for (int i = 0; i < columns.length; i++) {
+						header.add(headerText(reader.getValue(i)));
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		return header;
+	}
+
+}
@@ -0,0 +1,557 @@
+package cn.brent.commons.office.excel;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.formula.FormulaParser;
+import org.apache.poi.ss.formula.FormulaRenderer;
+import org.apache.poi.ss.formula.FormulaType;
+import org.apache.poi.ss.formula.ptg.Area3DPtg;
+import org.apache.poi.ss.formula.ptg.AreaPtgBase;
+import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.ss.formula.ptg.Ref3DPtg;
+import org.apache.poi.ss.formula.ptg.RefPtgBase;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.xssf.usermodel.XSSFCell;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.apache.poi.xssf.usermodel.XSSFEvaluationWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTRow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import cn.brent.commons.office.excel.handler.ValueHandler;
+
+/**
+ * 按模板导出“XLSX”
+ *
+ * 模板只在构造时解析一次，样式、其它工作表和部件缓存为写出内容，同一实例可多次（包括多线程同时）导出。
+ * 目标工作表中startRow之前的行（标志、标题、表头等）以及冻结窗格、图片等原样保留；startRow行为样式行，
+ * 数据单元格沿用其各列样式（日期值和带format的列补充数据格式），样式行本身不输出；startRow之后的行为表尾，
+ * 写在数据之后，表尾公式中的本表引用和表尾的合并单元格随之下移，公式中包含样式行的区域扩展到全部数据行
+ * （如样式行为第5行时表尾的“SUM(C5:C5)”变为“SUM(C5:C104)”）；从样式行之前延伸到样式行的合并单元格同样扩展，
+ * 样式行内的合并单元格（如“A5:B5”）复制到每个数据行，从样式行延伸到表尾的合并单元格去掉。
+ * 表尾的条件格式、数据有效性和超链接不下移，仍按模板中的位置输出，应放在startRow之前或不在表尾使用。
+ * 数据行从迭代器逐行拉取直接写出，不在内存中保留
+ */
+public class TemplateExportExcel<T> {
+
+	private Logger log = LoggerFactory.getLogger(getClass());
+
+	private static final String DEFAULT_DATE_FORMAT = "yyyy-MM-dd";
+
+	private static final int LAST_ROW = SpreadsheetVersion.EXCEL2007.getLastRowIndex();
+
+	/**
+	 * 导出列
+	 */
+	private final List<ExcelColumn> columns;
+
+	private final String[] columnNames;
+
+	/**
+	 * 各列数据样式序号
+	 */
+	private final int[] styles;
+
+	/**
+	 * 各列日期值的样式序号
+	 */
+	private final int[] dateStyles;
+
+	/**
+	 * 数据起始行（样式行）
+	 */
+	private final int startRow;
+
+	private final int sheetIndex;
+
+	/**
+	 * 目标工作表的条目名
+	 */
+	private final String sheetEntry;
+
+	/**
+	 * 目标工作表XML：数据行之前、表尾之后（合并单元格之前）、合并单元格之后
+	 */
+	private final String head;
+
+	private final String tailBeforeMerges;
+
+	private final String tailAfterMerges;
+
+	private final List<CellRangeAddress> mergedRegions = new ArrayList<CellRangeAddress>();
+
+	private final List<FooterRow> footer = new ArrayList<FooterRow>();
+
+	/**
+	 * 其余压缩包条目
+	 */
+	private final Map<String, byte[]> entries;
+
+	/**
+	 * 用于解析、输出表尾公式
+	 */
+	private final XSSFEvaluationWorkbook evaluationWorkbook;
+
+	/**
+	 * 构造函数
+	 * 
+	 * @param cls
+	 *            实体对象，通过annotation.ExportField获取导出列
+	 * @param template
+	 *            模板数据流，读取后不关闭
+	 * @param sheetIndex
+	 *            目标工作表
+	 * @param startRow
+	 *            数据起始行（从0开始，该行为样式行）
+	 */
+	public TemplateExportExcel(Class<?> cls, InputStream template, int sheetIndex, int startRow) {
+		this(cls, read(template), sheetIndex, startRow);
+	}
+
+	/**
+	 * @param template
+	 *            模板文件
+	 */
+	public TemplateExportExcel(Class<?> cls, File template, int sheetIndex, int startRow) {
+		this(cls, read(template), sheetIndex, startRow);
+	}
+
+	private TemplateExportExcel(Class<?> cls, XSSFWorkbook wb, int sheetIndex, int startRow) {
+		if (startRow < 0 || startRow > LAST_ROW) {
+			throw new IllegalArgumentException("startRow out of range: " + startRow);
+		}
+		this.columns = ExcelMapping.of(cls).getExportColumns();
+		this.startRow = startRow;
+		this.sheetIndex = sheetIndex;
+		this.columnNames = new String[columns.size()];
+		for (int i = 0; i < columnNames.length; i++) {
+			columnNames[i] = CellReference.convertNumToColString(i);
+		}
+		this.styles = new int[columns.size()];
+		this.dateStyles = new int[columns.size()];
+		try {
+			if (sheetIndex < 0 || sheetIndex >= wb.getNumberOfSheets()) {
+				throw new RuntimeException("文档中没有工作表!");
+			}
+			XSSFSheet sheet = wb.getSheetAt(sheetIndex);
+			initStyles(wb, sheet.getRow(startRow));
+			initFooter(sheet);
+			for (int i = 0; i < sheet.getNumMergedRegions(); i++) {
+				mergedRegions.add(sheet.getMergedRegion(i));
+			}
+			// 数据和表尾位置变化，打开时重新计算公式
+			wb.setForceFormulaRecalculation(true);
+
+			this.sheetEntry = SheetXml.entryName(sheet);
+			String xml = SheetXml.sheetXml(sheet);
+			int idx = xml.indexOf(SheetXml.SHEET_DATA_END);
+			this.head = xml.substring(0, idx);
+			String tail = xml.substring(idx);
+			int mergeStart = tail.indexOf("<mergeCells");
+			if (mergeStart < 0) {
+				this.tailBeforeMerges = tail;
+				this.tailAfterMerges = "";
+			} else {
+				String end = "</mergeCells>";
+				this.tailBeforeMerges = tail.substring(0, mergeStart);
+				this.tailAfterMerges = tail.substring(tail.indexOf(end, mergeStart) + end.length());
+			}
+			this.entries = SheetXml.serialize(wb);
+			entries.remove(sheetEntry);
+			removeCalcChain();
+			this.evaluationWorkbook = XSSFEvaluationWorkbook.create(wb);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		log.debug("Initialize success.");
+	}
+
+	private static XSSFWorkbook read(InputStream template) {
+		if (template == null) {
+			throw new RuntimeException("InputStream is null");
+		}
+		try {
+			return new XSSFWorkbook(template);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static XSSFWorkbook read(File template) {
+		try {
+			InputStream is = new FileInputStream(template);
+			try {
+				return new XSSFWorkbook(is);
+			} finally {
+				is.close();
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * 按样式行确定各列样式，需要补充数据格式的样式只创建一次
+	 */
+	private void initStyles(XSSFWorkbook wb, XSSFRow styleRow) {
+		Map<String, Integer> created = new HashMap<String, Integer>();
+		for (int i = 0; i < columns.size(); i++) {
+			XSSFCellStyle base = null;
+			if (styleRow != null) {
+				XSSFCell cell = styleRow.getCell(i);
+				base = cell != null ? cell.getCellStyle() : styleRow.getRowStyle();
+			}
+			if (base == null) {
+				base = wb.getCellStyleAt((short) 0);
+			}
+			String format = columns.get(i).getField().format();
+			styles[i] = base.getIndex();
+			if (StringUtils.isNotEmpty(format) && base.getDataFormat() == 0) {
+				styles[i] = formatStyle(wb, base, format, created);
+			}
+			if (DateUtil.isADateFormat(base.getDataFormat(), base.getDataFormatString())) {
+				dateStyles[i] = base.getIndex();
+			} else {
+				dateStyles[i] = formatStyle(wb, base, StringUtils.isEmpty(format) ? DEFAULT_DATE_FORMAT : format, created);
+			}
+		}
+	}
+
+	private static int formatStyle(XSSFWorkbook wb, XSSFCellStyle base, String format, Map<String, Integer> created) {
+		String key = base.getIndex() + format;
+		Integer index = created.get(key);
+		if (index == null) {
+			XSSFCellStyle style = wb.createCellStyle();
+			style.cloneStyleFrom(base);
+			style.setDataFormat(wb.createDataFormat().getFormat(format));
+			index = (int) style.getIndex();
+			created.put(key, index);
+		}
+		return index;
+	}
+
+	/**
+	 * 记录表尾各行，并从工作表中移除样式行和表尾
+	 */
+	private void initFooter(XSSFSheet sheet) {
+		List<Row> removed = new ArrayList<Row>();
+		for (Row row : sheet) {
+			if (row.getRowNum() >= startRow) {
+				removed.add(row);
+			}
+			if (row.getRowNum() > startRow) {
+				footer.add(new FooterRow((XSSFRow) row));
+			}
+		}
+		for (Row row : removed) {
+			sheet.removeRow(row);
+		}
+	}
+
+	/**
+	 * 表尾公式移动后计算链失效，去掉计算链（Excel打开时重建）
+	 */
+	private void removeCalcChain() throws IOException {
+		if (entries.remove("xl/calcChain.xml") == null) {
+			return;
+		}
+		replaceEntry("[Content_Types].xml", "<Override[^>]*PartName=\"/xl/calcChain.xml\"[^>]*/>");
+		replaceEntry("xl/_rels/workbook.xml.rels", "<Relationship[^>]*Target=\"[^\"]*calcChain.xml\"[^>]*/>");
+	}
+
+	private void replaceEntry(String name, String regex) throws IOException {
+		byte[] content = entries.get(name);
+		if (content != null) {
+			entries.put(name, new String(content, "UTF-8").replaceAll(regex, "").getBytes("UTF-8"));
+		}
+	}
+
+	/**
+	 * 从迭代器拉取数据并写入输出流，写完后不关闭输出流
+	 * 
+	 * @param data
+	 *            数据，可为{@link ExportQueue}以接收其它线程生产的数据；写完或出错后关闭可关闭的数据来源
+	 * @param os
+	 *            输出数据流
+	 */
+	public void write(Iterator<? extends T> data, OutputStream os) throws IOException {
+		try {
+			writeData(data, os);
+		} finally {
+			ExportQueue.closeSource(data);
+		}
+	}
+
+	@SuppressWarnings("rawtypes")
+	private void writeData(Iterator<? extends T> data, OutputStream os) throws IOException {
+		ZipOutputStream zos = new ZipOutputStream(os);
+		Writer out = new BufferedWriter(new OutputStreamWriter(zos, "UTF-8"), 64 * 1024);
+		zos.putNextEntry(new ZipEntry(sheetEntry));
+		out.write(head);
+		ValueHandler[] handlers = ExcelColumn.newHandlers(columns);
+		int rownum = startRow;
+		int lastDataRow = LAST_ROW - (footer.isEmpty() ? 0 : footer.get(footer.size() - 1).rownum - startRow);
+		while (data.hasNext()) {
+			if (rownum > lastDataRow) {
+				throw new RuntimeException("Too many rows for the template sheet: " + (rownum - startRow + 1));
+			}
+			writeRow(out, rownum++, ExcelColumn.exportValues(columns, handlers, data.next(), log));
+		}
+		// 没有数据时保留样式行的位置，表尾公式仍然有效
+		int shift = Math.max(rownum - startRow, 1) - 1;
+		for (FooterRow row : footer) {
+			row.write(out, shift);
+		}
+		out.write(tailBeforeMerges);
+		if (!mergedRegions.isEmpty()) {
+			int count = 0;
+			for (CellRangeAddress region : mergedRegions) {
+				count += mergeCopies(region, shift);
+			}
+			out.write("<mergeCells count=\"" + count + "\">");
+			for (CellRangeAddress region : mergedRegions) {
+				int firstRow = region.getFirstRow();
+				int lastRow = region.getLastRow();
+				if (firstRow == startRow) {
+					// 样式行内的合并复制到每个数据行，从样式行延伸到表尾的合并去掉
+					for (int r = startRow; lastRow == startRow && r <= startRow + shift; r++) {
+						writeMerge(out, r, r, region);
+					}
+					continue;
+				}
+				if (firstRow > startRow) {
+					firstRow += shift;
+					lastRow += shift;
+				} else if (lastRow >= startRow) {
+					lastRow += shift;
+				}
+				writeMerge(out, firstRow, lastRow, region);
+			}
+			out.write("</mergeCells>");
+		}
+		out.write(tailAfterMerges);
+		out.flush();
+		zos.closeEntry();
+		for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+			zos.putNextEntry(new ZipEntry(entry.getKey()));
+			zos.write(entry.getValue());
+			zos.closeEntry();
+		}
+		zos.finish();
+		zos.flush();
+	}
+
+	/**
+	 * 合并区域在输出中的个数
+	 */
+	private int mergeCopies(CellRangeAddress region, int shift) {
+		if (region.getFirstRow() != startRow) {
+			return 1;
+		}
+		return region.getLastRow() == startRow ? shift + 1 : 0;
+	}
+
+	private static void writeMerge(Writer out, int firstRow, int lastRow, CellRangeAddress region) throws IOException {
+		CellRangeAddress shifted = new CellRangeAddress(firstRow, lastRow, region.getFirstColumn(), region.getLastColumn());
+		out.write("<mergeCell ref=\"" + shifted.formatAsString() + "\"/>");
+	}
+
+	/**
+	 * 导出列表数据
+	 */
+	public void write(List<T> list, OutputStream os) throws IOException {
+		write(list.iterator(), os);
+	}
+
+	private void writeRow(Writer out, int rownum, Object[] values) throws IOException {
+		String r = String.valueOf(rownum + 1);
+		out.write("<row r=\"");
+		out.write(r);
+		out.write("\">");
+		for (int col = 0; col < values.length; col++) {
+			Object val = values[col];
+			SheetXml.writeCell(out, columnNames[col], r, val instanceof Date ? dateStyles[col] : styles[col], val);
+		}
+		out.write("</row>");
+	}
+
+	/**
+	 * 表尾公式中本表的引用随表尾下移，包含样式行的区域扩展；其它工作表的引用不变
+	 */
+	private String shiftFormula(String formula, int shift) {
+		if (shift == 0) {
+			return formula;
+		}
+		synchronized (evaluationWorkbook) {
+			Ptg[] ptgs = FormulaParser.parse(formula, evaluationWorkbook, FormulaType.CELL, sheetIndex);
+			for (Ptg ptg : ptgs) {
+				if (ptg instanceof Ref3DPtg || ptg instanceof Area3DPtg) {
+					continue;
+				}
+				if (ptg instanceof RefPtgBase) {
+					RefPtgBase ref = (RefPtgBase) ptg;
+					if (ref.getRow() > startRow) {
+						ref.setRow(ref.getRow() + shift);
+					}
+				} else if (ptg instanceof AreaPtgBase) {
+					AreaPtgBase area = (AreaPtgBase) ptg;
+					if (area.getLastRow() >= LAST_ROW) {
+						// 整列引用
+						continue;
+					}
+					if (area.getFirstRow() > startRow) {
+						area.setFirstRow(area.getFirstRow() + shift);
+						area.setLastRow(area.getLastRow() + shift);
+					} else if (area.getLastRow() >= startRow) {
+						area.setLastRow(area.getLastRow() + shift);
+					}
+				}
+			}
+			return FormulaRenderer.toFormulaString(evaluationWorkbook, ptgs);
+		}
+	}
+
+	/**
+	 * 表尾的一行
+	 */
+	private final class FooterRow {
+
+		final int rownum;
+
+		/**
+		 * 行属性（行高、行样式、隐藏）
+		 */
+		final String attributes;
+
+		final List<FooterCell> cells = new ArrayList<FooterCell>();
+
+		FooterRow(XSSFRow row) {
+			this.rownum = row.getRowNum();
+			CTRow ct = row.getCTRow();
+			StringBuilder sb = new StringBuilder();
+			if (ct.isSetS() && ct.getCustomFormat()) {
+				sb.append(" s=\"").append(ct.getS()).append("\" customFormat=\"1\"");
+			}
+			if (ct.isSetHt() && ct.getCustomHeight()) {
+				sb.append(" ht=\"").append(ct.getHt()).append("\" customHeight=\"1\"");
+			}
+			if (ct.getHidden()) {
+				sb.append(" hidden=\"1\"");
+			}
+			this.attributes = sb.toString();
+			for (Cell cell : row) {
+				cells.add(new FooterCell((XSSFCell) cell));
+			}
+		}
+
+		void write(Writer out, int shift) throws IOException {
+			String r = String.valueOf(rownum + shift + 1);
+			out.write("<row r=\"");
+			out.write(r);
+			out.write('"');
+			out.write(attributes);
+			out.write('>');
+			for (FooterCell cell : cells) {
+				cell.write(out, r, shift);
+			}
+			out.write("</row>");
+		}
+
+	}
+
+	/**
+	 * 表尾的一个单元格
+	 */
+	private final class FooterCell {
+
+		final String column;
+
+		final int style;
+
+		final int type;
+
+		final String value;
+
+		FooterCell(XSSFCell cell) {
+			this.column = CellReference.convertNumToColString(cell.getColumnIndex());
+			this.style = cell.getCellStyle().getIndex();
+			this.type = cell.getCellType();
+			switch (type) {
+			case Cell.CELL_TYPE_NUMERIC:
+				value = Double.toString(cell.getNumericCellValue());
+				break;
+			case Cell.CELL_TYPE_STRING:
+				value = cell.getStringCellValue();
+				break;
+			case Cell.CELL_TYPE_BOOLEAN:
+				value = cell.getBooleanCellValue() ? "1" : "0";
+				break;
+			case Cell.CELL_TYPE_ERROR:
+				value = cell.getErrorCellString();
+				break;
+			case Cell.CELL_TYPE_FORMULA:
+				value = cell.getCellFormula();
+				break;
+			default:
+				value = null;
+			}
+		}
+
+		void write(Writer out, String r, int shift) throws IOException {
+			out.write("<c r=\"");
+			out.write(column);
+			out.write(r);
+			out.write("\" s=\"");
+			out.write(String.valueOf(style));
+			switch (type) {
+			case Cell.CELL_TYPE_NUMERIC:
+				out.write("\"><v>" + value + "</v></c>");
+				break;
+			case Cell.CELL_TYPE_STRING:
+				SheetXml.writeInlineString(out, value);
+				break;
+			case Cell.CELL_TYPE_BOOLEAN:
+				out.write("\" t=\"b\"><v>" + value + "</v></c>");
+				break;
+			case Cell.CELL_TYPE_ERROR:
+				out.write("\" t=\"e\"><v>");
+				SheetXml.writeEscaped(out, value);
+				out.write("</v></c>");
+				break;
+			case Cell.CELL_TYPE_FORMULA:
+				out.write("\"><f>");
+				SheetXml.writeEscaped(out, shiftFormula(value, shift));
+				out.write("</f></c>");
+				break;
+			default:
+				out.write("\"/>");
+			}
+		}
+
+	}
+
+}
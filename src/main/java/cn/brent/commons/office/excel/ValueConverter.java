@@ -0,0 +1,359 @@
+package cn.brent.commons.office.excel;
+
+import java.math.BigDecimal;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.poi.ss.usermodel.DateUtil;
+
+/**
+ * 导入值转换器
+ *
+ * 构建映射时按属性类型为每列选定一个转换器；数值单元格直接取double值转换，
+ * 文本先校验格式再解析，转换失败返回{@link #INVALID}而不抛出异常
+ */
+abstract class ValueConverter {
+
+	/**
+	 * 转换失败
+	 */
+	static final Object INVALID = new Object();
+
+	/**
+	 * 转换单元格值
+	 *
+	 * @param val
+	 *            单元格值（非null）
+	 * @return 属性值，空白单元格返回null，失败返回{@link #INVALID}
+	 */
+	abstract Object convert(Object val);
+
+	/**
+	 * 按属性类型选择转换器
+	 *
+	 * @param format
+	 *            日期格式，为空时用“yyyy-MM-dd”解析文本日期
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	static ValueConverter forType(Class<?> type, String format) {
+		if (type == String.class) {
+			return STRING;
+		} else if (type == Integer.class || type == int.class) {
+			return INTEGER;
+		} else if (type == Long.class || type == long.class) {
+			return LONG;
+		} else if (type == Double.class || type == double.class) {
+			return DOUBLE;
+		} else if (type == Float.class || type == float.class) {
+			return FLOAT;
+		} else if (type == Boolean.class || type == boolean.class) {
+			return BOOLEAN;
+		} else if (type == BigDecimal.class) {
+			return BIG_DECIMAL;
+		} else if (type == Date.class) {
+			return new DateConverter(StringUtils.isEmpty(format) ? "yyyy-MM-dd" : format);
+		} else if (type.isEnum()) {
+			return new EnumConverter((Class) type);
+		}
+		return IDENTITY;
+	}
+
+	/**
+	 * 其它类型原样设置
+	 */
+	private static final ValueConverter IDENTITY = new ValueConverter() {
+		@Override
+		Object convert(Object val) {
+			return val;
+		}
+	};
+
+	private static final ValueConverter STRING = new ValueConverter() {
+		@Override
+		Object convert(Object val) {
+			if (val instanceof String) {
+				return val;
+			}
+			// 数值单元格不输出整数的“.0”
+			if (val instanceof Double) {
+				double d = (Double) val;
+				if (d == Math.rint(d) && Math.abs(d) < 1e7) {
+					return Long.toString((long) d);
+				}
+			}
+			String s = val.toString();
+			return StringUtils.endsWith(s, ".0") ? StringUtils.substringBefore(s, ".0") : s;
+		}
+	};
+
+	private static final ValueConverter INTEGER = new NumberConverter() {
+		@Override
+		Object fromDouble(double d) {
+			return (int) d;
+		}
+
+		@Override
+		Object fromString(String s) {
+			Object val = parseIntegral(s, Integer.MIN_VALUE, Integer.MAX_VALUE);
+			return val == INVALID ? val : Integer.valueOf(((Long) val).intValue());
+		}
+	};
+
+	private static final ValueConverter LONG = new NumberConverter() {
+		@Override
+		Object fromDouble(double d) {
+			return (long) d;
+		}
+
+		@Override
+		Object fromString(String s) {
+			return parseIntegral(s, Long.MIN_VALUE, Long.MAX_VALUE);
+		}
+	};
+
+	private static final ValueConverter DOUBLE = new NumberConverter() {
+		@Override
+		Object fromDouble(double d) {
+			return d;
+		}
+	};
+
+	private static final ValueConverter FLOAT = new NumberConverter() {
+		@Override
+		Object fromDouble(double d) {
+			return (float) d;
+		}
+	};
+
+	private static final ValueConverter BIG_DECIMAL = new NumberConverter() {
+		@Override
+		Object fromDouble(double d) {
+			return BigDecimal.valueOf(d);
+		}
+
+		@Override
+		Object fromString(String s) {
+			BigDecimal d = parseDecimal(s);
+			return d == null ? INVALID : d;
+		}
+	};
+
+	private static final ValueConverter BOOLEAN = new ValueConverter() {
+		@Override
+		Object convert(Object val) {
+			if (val instanceof Boolean) {
+				return val;
+			} else if (val instanceof Number) {
+				return ((Number) val).doubleValue() != 0;
+			}
+			String s = val.toString().trim();
+			if (s.isEmpty()) {
+				return null;
+			} else if ("true".equalsIgnoreCase(s) || "1".equals(s)) {
+				return Boolean.TRUE;
+			} else if ("false".equalsIgnoreCase(s) || "0".equals(s)) {
+				return Boolean.FALSE;
+			}
+			return INVALID;
+		}
+	};
+
+	/**
+	 * 解析已校验格式的文本，指数超出范围（如“1e9999999999”）时返回null
+	 */
+	private static BigDecimal parseDecimal(String s) {
+		try {
+			return new BigDecimal(s);
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * 解析已校验格式的文本为整数，不经过double以免超过2^53的数丢失精度；小数部分截去，超出范围时返回{@link #INVALID}
+	 */
+	private static Object parseIntegral(String s, long min, long max) {
+		if (isInteger(s)) {
+			try {
+				long l = Long.parseLong(s.charAt(0) == '+' ? s.substring(1) : s);
+				return l < min || l > max ? INVALID : Long.valueOf(l);
+			} catch (NumberFormatException e) {
+				return INVALID;
+			}
+		}
+		BigDecimal d = parseDecimal(s);
+		if (d == null || d.compareTo(BigDecimal.valueOf(min)) < 0 || d.compareTo(BigDecimal.valueOf(max)) > 0) {
+			return INVALID;
+		}
+		// 先比较大小，避免对很小的指数（如“1e-99999”）做截断运算
+		if (d.abs().compareTo(BigDecimal.ONE) < 0) {
+			return Long.valueOf(0);
+		}
+		return Long.valueOf(d.longValue());
+	}
+
+	/**
+	 * 是否为不带小数和指数的整数
+	 */
+	private static boolean isInteger(String s) {
+		int i = s.charAt(0) == '+' || s.charAt(0) == '-' ? 1 : 0;
+		if (i == s.length()) {
+			return false;
+		}
+		for (; i < s.length(); i++) {
+			if (!isDigit(s.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * 数值类型
+	 */
+	private static abstract class NumberConverter extends ValueConverter {
+
+		@Override
+		Object convert(Object val) {
+			if (val instanceof Number) {
+				return fromDouble(((Number) val).doubleValue());
+			} else if (val instanceof String) {
+				String s = ((String) val).trim();
+				if (s.isEmpty()) {
+					return null;
+				}
+				return isDecimal(s) ? fromString(s) : INVALID;
+			}
+			return INVALID;
+		}
+
+		abstract Object fromDouble(double d);
+
+		/**
+		 * 解析已校验格式的文本
+		 */
+		Object fromString(String s) {
+			return fromDouble(Double.parseDouble(s));
+		}
+
+	}
+
+	private static final class DateConverter extends ValueConverter {
+
+		private final String format;
+
+		/**
+		 * 各线程的日期格式（只含JDK类型，不会使线程引用本库的类加载器）
+		 */
+		private final ThreadLocal<SimpleDateFormat> formats = new ThreadLocal<SimpleDateFormat>();
+
+		DateConverter(String format) {
+			this.format = format;
+		}
+
+		private SimpleDateFormat dateFormat() {
+			SimpleDateFormat sdf = formats.get();
+			if (sdf == null) {
+				sdf = new SimpleDateFormat(format);
+				sdf.setLenient(false);
+				formats.set(sdf);
+			}
+			return sdf;
+		}
+
+		@Override
+		Object convert(Object val) {
+			if (val instanceof Double) {
+				return DateUtil.getJavaDate((Double) val);
+			} else if (val instanceof Date) {
+				return val;
+			} else if (val instanceof String) {
+				String s = ((String) val).trim();
+				if (s.isEmpty()) {
+					return null;
+				}
+				ParsePosition pos = new ParsePosition(0);
+				Date date = dateFormat().parse(s, pos);
+				return date == null || pos.getIndex() != s.length() ? INVALID : date;
+			}
+			return INVALID;
+		}
+
+	}
+
+	@SuppressWarnings("rawtypes")
+	private static final class EnumConverter extends ValueConverter {
+
+		/**
+		 * 名称 → 枚举值
+		 */
+		private final Map<String, Enum> constants = new HashMap<String, Enum>();
+
+		EnumConverter(Class<? extends Enum> type) {
+			for (Enum e : type.getEnumConstants()) {
+				constants.put(e.name(), e);
+			}
+		}
+
+		@Override
+		Object convert(Object val) {
+			String s = val.toString().trim();
+			if (s.isEmpty()) {
+				return null;
+			}
+			Enum e = constants.get(s);
+			return e == null ? INVALID : e;
+		}
+
+	}
+
+	/**
+	 * 是否为十进制数（可带符号、小数和指数）；只校验格式，指数可能超出BigDecimal的范围
+	 */
+	static boolean isDecimal(String s) {
+		int i = 0;
+		int len = s.length();
+		if (i < len && (s.charAt(i) == '+' || s.charAt(i) == '-')) {
+			i++;
+		}
+		int digits = 0;
+		while (i < len && isDigit(s.charAt(i))) {
+			i++;
+			digits++;
+		}
+		if (i < len && s.charAt(i) == '.') {
+			i++;
+			while (i < len && isDigit(s.charAt(i))) {
+				i++;
+				digits++;
+			}
+		}
+		if (digits == 0) {
+			return false;
+		}
+		if (i < len && (s.charAt(i) == 'e' || s.charAt(i) == 'E')) {
+			i++;
+			if (i < len && (s.charAt(i) == '+' || s.charAt(i) == '-')) {
+				i++;
+			}
+			int exp = 0;
+			while (i < len && isDigit(s.charAt(i))) {
+				i++;
+				exp++;
+			}
+			if (exp == 0) {
+				return false;
+			}
+		}
+		return i == len;
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+
+}
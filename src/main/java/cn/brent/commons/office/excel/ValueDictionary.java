@@ -0,0 +1,78 @@
+package cn.brent.commons.office.excel;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 有界值字典
+ *
+ * 返回与参数相等的规范实例，使重复出现的值共用一个对象；只处理不可变类型，最多保存maxSize个不同值，
+ * 写满后只查找不再加入。可在多个线程中同时使用
+ */
+final class ValueDictionary {
+
+	/**
+	 * 可共用实例的类型
+	 */
+	private static final Set<Class<?>> IMMUTABLE_TYPES = new HashSet<Class<?>>(Arrays.<Class<?>> asList(String.class, Boolean.class,
+			Byte.class, Short.class, Integer.class, Long.class, Float.class, Double.class, BigInteger.class, BigDecimal.class));
+
+	private final ConcurrentHashMap<Object, Object> values = new ConcurrentHashMap<Object, Object>();
+
+	private final int maxSize;
+
+	private final AtomicInteger size = new AtomicInteger();
+
+	private volatile boolean full;
+
+	ValueDictionary(int maxSize) {
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("maxSize must be positive");
+		}
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * 规范实例，不能共用的类型和字典满后的新值原样返回
+	 */
+	Object canonical(Object val) {
+		if (val == null || !IMMUTABLE_TYPES.contains(val.getClass())) {
+			return val;
+		}
+		Object existing = values.get(val);
+		if (existing != null) {
+			return existing;
+		}
+		if (full) {
+			return val;
+		}
+		// 先占一个名额，其它线程已加入相同的值时归还，只有成功加入的值计数
+		if (size.incrementAndGet() > maxSize) {
+			size.decrementAndGet();
+			// 名额可能被其它线程暂时占用，确实写满后才不再尝试
+			if (values.size() >= maxSize) {
+				full = true;
+			}
+			return val;
+		}
+		existing = values.putIfAbsent(val, val);
+		if (existing != null) {
+			size.decrementAndGet();
+			return existing;
+		}
+		return val;
+	}
+
+	/**
+	 * 字典中的值个数
+	 */
+	int size() {
+		return values.size();
+	}
+
+}
@@ -0,0 +1,190 @@
+package cn.brent.commons.office.excel;
+
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.poi.hssf.record.BOFRecord;
+import org.apache.poi.hssf.record.BoundSheetRecord;
+import org.apache.poi.hssf.record.EOFRecord;
+import org.apache.poi.hssf.record.Record;
+import org.apache.poi.hssf.record.RecordFactoryInputStream;
+import org.apache.poi.hssf.record.SSTRecord;
+import org.apache.poi.poifs.filesystem.DirectoryNode;
+import org.apache.poi.poifs.filesystem.NPOIFSFileSystem;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.ss.util.CellRangeAddress;
+
+/**
+ * 已打开的“XLS”文档，供流式导入共用
+ *
+ * 只保留POIFS中的Workbook数据流，每个行读取器各自从头读取BIFF记录，可在多个线程中同时读取不同工作表
+ */
+final class XlsPackage implements SheetSource {
+
+	/**
+	 * 由数据流读入的文档
+	 */
+	private final DirectoryNode root;
+
+	/**
+	 * 文档文件，每个读取器各自以只读方式打开
+	 */
+	private final File file;
+
+	/**
+	 * 工作表名称（工作薄中的顺序）
+	 */
+	private final List<String> sheetNames;
+
+	XlsPackage(InputStream is) {
+		if (is == null) {
+			throw new RuntimeException("InputStream is null");
+		}
+		try {
+			this.root = new POIFSFileSystem(is).getRoot();
+			this.file = null;
+			this.sheetNames = Collections.unmodifiableList(readSheetNames());
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * 直接读取文件，不将整个文档读入内存
+	 */
+	XlsPackage(File file) {
+		this.root = null;
+		this.file = file;
+		try {
+			this.sheetNames = Collections.unmodifiableList(readSheetNames());
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * 读取工作薄全局记录中的工作表名称
+	 */
+	private List<String> readSheetNames() throws IOException {
+		List<String> names = new ArrayList<String>();
+		InputStream in = openWorkbook();
+		try {
+			RecordFactoryInputStream records = new RecordFactoryInputStream(in, false);
+			Record rec;
+			while ((rec = records.nextRecord()) != null && !(rec instanceof EOFRecord)) {
+				if (rec instanceof BoundSheetRecord) {
+					names.add(((BoundSheetRecord) rec).getSheetname());
+				}
+			}
+		} finally {
+			in.close();
+		}
+		return names;
+	}
+
+	/**
+	 * 打开Workbook数据流
+	 */
+	InputStream openWorkbook() throws IOException {
+		if (root != null) {
+			return openWorkbook(root);
+		}
+		final NPOIFSFileSystem fs = new NPOIFSFileSystem(file, true);
+		try {
+			return new FilterInputStream(openWorkbook(fs.getRoot())) {
+				@Override
+				public void close() throws IOException {
+					try {
+						super.close();
+					} finally {
+						fs.close();
+					}
+				}
+			};
+		} catch (IOException e) {
+			fs.close();
+			throw e;
+		} catch (RuntimeException e) {
+			fs.close();
+			throw e;
+		}
+	}
+
+	private static InputStream openWorkbook(DirectoryNode root) throws IOException {
+		// Excel 95及更早版本使用“Book”
+		return root.createDocumentInputStream(root.hasEntry("Workbook") ? "Workbook" : "Book");
+	}
+
+	/**
+	 * 读取全局记录，定位到工作表子流的BOF记录之后
+	 *
+	 * @return 共享字符串表，没有时返回null
+	 */
+	static SSTRecord seekSheet(RecordFactoryInputStream records, int sheetIndex) {
+		SSTRecord sst = null;
+		List<BoundSheetRecord> boundSheets = new ArrayList<BoundSheetRecord>();
+		Record rec = records.nextRecord();
+		if (!(rec instanceof BOFRecord) || ((BOFRecord) rec).getType() != BOFRecord.TYPE_WORKBOOK) {
+			throw new RuntimeException("文档格式不正确!");
+		}
+		while ((rec = records.nextRecord()) != null && !(rec instanceof EOFRecord)) {
+			if (rec instanceof BoundSheetRecord) {
+				boundSheets.add((BoundSheetRecord) rec);
+			} else if (rec instanceof SSTRecord) {
+				sst = (SSTRecord) rec;
+			}
+		}
+		if (sheetIndex < 0 || sheetIndex >= boundSheets.size()) {
+			throw new RuntimeException("文档中没有工作表!");
+		}
+		// 工作表子流按BOF位置排列，不一定与工作表顺序一致
+		BoundSheetRecord[] ordered = BoundSheetRecord.orderByBofPosition(boundSheets);
+		int substream = 0;
+		while (ordered[substream] != boundSheets.get(sheetIndex)) {
+			substream++;
+		}
+		int depth = 0;
+		int found = -1;
+		while ((rec = records.nextRecord()) != null) {
+			if (rec instanceof BOFRecord) {
+				if (depth++ == 0 && ++found == substream) {
+					return sst;
+				}
+			} else if (rec instanceof EOFRecord) {
+				depth--;
+			}
+		}
+		throw new RuntimeException("文档中没有工作表!");
+	}
+
+	@Override
+	public int getNumberOfSheets() {
+		return sheetNames.size();
+	}
+
+	@Override
+	public String getSheetName(int sheetIndex) {
+		return sheetNames.get(sheetIndex);
+	}
+
+	@Override
+	public List<CellRangeAddress> readMergedRegions(int sheetIndex) throws IOException {
+		return XlsSheetReader.readMergedRegions(this, sheetIndex);
+	}
+
+	@Override
+	public RowReader openReader(int sheetIndex, int headerNum, boolean[] columns, MergedRegions mergedRegions) throws IOException {
+		return new XlsSheetReader(this, sheetIndex, headerNum, columns, mergedRegions);
+	}
+
+	@Override
+	public void close() {
+		// 文件由各读取器自行关闭，内存中的文档无需释放
+	}
+
+}
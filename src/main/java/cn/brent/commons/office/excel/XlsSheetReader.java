@@ -0,0 +1,277 @@
+package cn.brent.commons.office.excel;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.apache.poi.hssf.record.BOFRecord;
+import org.apache.poi.hssf.record.BlankRecord;
+import org.apache.poi.hssf.record.BoolErrRecord;
+import org.apache.poi.hssf.record.CellValueRecordInterface;
+import org.apache.poi.hssf.record.EOFRecord;
+import org.apache.poi.hssf.record.FormulaRecord;
+import org.apache.poi.hssf.record.LabelRecord;
+import org.apache.poi.hssf.record.LabelSSTRecord;
+import org.apache.poi.hssf.record.MergeCellsRecord;
+import org.apache.poi.hssf.record.MulBlankRecord;
+import org.apache.poi.hssf.record.NumberRecord;
+import org.apache.poi.hssf.record.Record;
+import org.apache.poi.hssf.record.RecordFactoryInputStream;
+import org.apache.poi.hssf.record.RowRecord;
+import org.apache.poi.hssf.record.SSTRecord;
+import org.apache.poi.hssf.record.StringRecord;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.util.CellRangeAddress;
+
+/**
+ * “XLS”工作表行读取器
+ *
+ * 逐条读取工作表子流中的BIFF记录（RK/MulRK已由RecordFactory转换为NumberRecord），只解码映射的列；
+ * 与HSSFWorkbook一致，有ROW记录但没有单元格的行也作为一行返回；公式单元格取文件中缓存的计算结果
+ */
+final class XlsSheetReader implements RowReader {
+
+	private final InputStream in;
+
+	private final RecordFactoryInputStream records;
+
+	/**
+	 * 共享字符串表
+	 */
+	private final SSTRecord sst;
+
+	private final int headerNum;
+
+	/**
+	 * 需要读取的列
+	 */
+	private final boolean[] columns;
+
+	private final Object[] values;
+
+	private final MergedRegions.Cursor merged;
+
+	/**
+	 * 已由ROW记录声明、尚未返回的行
+	 */
+	private final TreeSet<Integer> declaredRows = new TreeSet<Integer>();
+
+	/**
+	 * 属于下一行、暂存的单元格记录
+	 */
+	private Record pushback;
+
+	/**
+	 * 等待StringRecord的字符串公式所在列，-1表示没有
+	 */
+	private int formulaColumn = -1;
+
+	/**
+	 * 子流嵌套深度（工作表内嵌图表也有BOF/EOF）
+	 */
+	private int depth = 1;
+
+	private int rownum = -1;
+
+	private boolean finished;
+
+	XlsSheetReader(XlsPackage xls, int sheetIndex, int headerNum, boolean[] columns, MergedRegions mergedRegions) throws IOException {
+		this.headerNum = headerNum;
+		this.columns = columns;
+		this.values = new Object[columns.length];
+		this.merged = mergedRegions.cursor(null);
+		this.in = xls.openWorkbook();
+		try {
+			this.records = new RecordFactoryInputStream(in, false);
+			this.sst = XlsPackage.seekSheet(records, sheetIndex);
+		} catch (RuntimeException e) {
+			in.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * 扫描工作表中的合并单元格区域
+	 */
+	static List<CellRangeAddress> readMergedRegions(XlsPackage xls, int sheetIndex) throws IOException {
+		List<CellRangeAddress> list = new ArrayList<CellRangeAddress>();
+		InputStream in = xls.openWorkbook();
+		try {
+			RecordFactoryInputStream records = new RecordFactoryInputStream(in, false);
+			XlsPackage.seekSheet(records, sheetIndex);
+			int depth = 1;
+			Record rec;
+			while (depth > 0 && (rec = records.nextRecord()) != null) {
+				if (rec instanceof BOFRecord) {
+					depth++;
+				} else if (rec instanceof EOFRecord) {
+					depth--;
+				} else if (depth == 1 && rec instanceof MergeCellsRecord) {
+					MergeCellsRecord mcr = (MergeCellsRecord) rec;
+					for (int i = 0; i < mcr.getNumAreas(); i++) {
+						list.add(mcr.getAreaAt(i));
+					}
+				}
+			}
+		} finally {
+			in.close();
+		}
+		return list;
+	}
+
+	/**
+	 * 读取工作表子流的下一条记录，子流结束时返回null
+	 */
+	private Record nextRecord() {
+		if (pushback != null) {
+			Record rec = pushback;
+			pushback = null;
+			return rec;
+		}
+		while (!finished) {
+			Record rec = records.nextRecord();
+			if (rec == null) {
+				finished = true;
+			} else if (rec instanceof BOFRecord) {
+				depth++;
+			} else if (rec instanceof EOFRecord) {
+				if (--depth == 0) {
+					finished = true;
+				}
+			} else if (depth == 1) {
+				return rec;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public boolean next() {
+		while (true) {
+			int row = readRow();
+			if (row < 0) {
+				return false;
+			} else if (row > headerNum) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * 读取一行（含标题行），返回行号，没有更多行时返回-1
+	 */
+	private int readRow() {
+		rownum = -1;
+		Arrays.fill(values, null);
+		Record rec;
+		while ((rec = nextRecord()) != null) {
+			if (rec instanceof RowRecord) {
+				declaredRows.add(((RowRecord) rec).getRowNumber());
+			} else if (rec instanceof StringRecord) {
+				if (formulaColumn >= 0) {
+					setValue(formulaColumn, ((StringRecord) rec).getString());
+					formulaColumn = -1;
+				}
+			} else if (rec instanceof CellValueRecordInterface || rec instanceof MulBlankRecord) {
+				int row = rec instanceof MulBlankRecord ? ((MulBlankRecord) rec).getRow() : ((CellValueRecordInterface) rec).getRow();
+				if (rownum >= 0 && row != rownum) {
+					pushback = rec;
+					return rownum;
+				}
+				if (rownum < 0) {
+					if (!declaredRows.isEmpty() && declaredRows.first() < row) {
+						// 只有ROW记录的空行
+						pushback = rec;
+						return startRow(declaredRows.pollFirst());
+					}
+					declaredRows.remove(row);
+					startRow(row);
+				}
+				readCell(rec);
+			}
+		}
+		if (rownum >= 0) {
+			return rownum;
+		} else if (!declaredRows.isEmpty()) {
+			return startRow(declaredRows.pollFirst());
+		}
+		return -1;
+	}
+
+	private int startRow(int row) {
+		rownum = row;
+		merged.advance(row);
+		return row;
+	}
+
+	/**
+	 * 按记录类型转换为与{@link ImportExcel#getCellValue(Cell)}相同的值
+	 */
+	private void readCell(Record rec) {
+		if (rec instanceof MulBlankRecord) {
+			MulBlankRecord mbr = (MulBlankRecord) rec;
+			for (int col = mbr.getFirstColumn(); col <= mbr.getLastColumn(); col++) {
+				setValue(col, "");
+			}
+			return;
+		}
+		int col = ((CellValueRecordInterface) rec).getColumn();
+		if (col >= columns.length || !columns[col]) {
+			return;
+		}
+		if (rec instanceof NumberRecord) {
+			setValue(col, ((NumberRecord) rec).getValue());
+		} else if (rec instanceof LabelSSTRecord) {
+			setValue(col, sst.getString(((LabelSSTRecord) rec).getSSTIndex()).getString());
+		} else if (rec instanceof LabelRecord) {
+			setValue(col, ((LabelRecord) rec).getValue());
+		} else if (rec instanceof BlankRecord) {
+			setValue(col, "");
+		} else if (rec instanceof BoolErrRecord) {
+			BoolErrRecord ber = (BoolErrRecord) rec;
+			setValue(col, ber.isBoolean() ? (Object) ber.getBooleanValue() : (Object) ber.getErrorValue());
+		} else if (rec instanceof FormulaRecord) {
+			FormulaRecord fr = (FormulaRecord) rec;
+			int type = fr.getCachedResultType();
+			if (type == Cell.CELL_TYPE_NUMERIC) {
+				setValue(col, fr.getValue());
+			} else if (type == Cell.CELL_TYPE_STRING && fr.hasCachedResultString()) {
+				formulaColumn = col;
+			} else if (type == Cell.CELL_TYPE_ERROR) {
+				setValue(col, (byte) fr.getCachedErrorValue());
+			} else {
+				// 公式的布尔结果在getDatas()中同样取空值
+				setValue(col, "");
+			}
+		}
+	}
+
+	private void setValue(int col, Object val) {
+		if (col < columns.length && columns[col]) {
+			values[col] = val;
+			merged.offer(col, val);
+		}
+	}
+
+	@Override
+	public int getRowNum() {
+		return rownum;
+	}
+
+	@Override
+	public Object getValue(int column) {
+		if (merged.isMerged(column)) {
+			return merged.getValue(column);
+		}
+		return values[column];
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+}
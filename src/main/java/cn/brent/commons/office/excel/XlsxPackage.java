@@ -0,0 +1,194 @@
+package cn.brent.commons.office.excel;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.usermodel.XSSFRelation;
+
+/**
+ * 已打开的“XLSX”文档，供流式导入共用
+ *
+ * 共享字符串表在首次读取工作表时加载，只读；各工作表的数据流相互独立，可在多个线程中同时读取不同工作表。
+ * 由数据流打开时先写入临时文件再按文件读取（OPCPackage读取数据流时会将全部部件解压到内存），
+ * 临时文件在能删除已打开文件的系统上立即删除，否则关闭时删除
+ */
+final class XlsxPackage implements SheetSource {
+
+	private final OPCPackage pkg;
+
+	/**
+	 * 由数据流写入、尚未删除的临时文件
+	 */
+	private File tempFile;
+
+	/**
+	 * 共享字符串表
+	 */
+	private SharedStrings sst;
+
+	private long spillThreshold = SharedStrings.DEFAULT_SPILL_THRESHOLD;
+
+	private final List<PackagePart> sheets;
+
+	private final List<String> sheetNames;
+
+	/**
+	 * 读取数据流（不关闭）到临时文件
+	 */
+	XlsxPackage(InputStream is) {
+		this(spool(is), true);
+	}
+
+	/**
+	 * 以只读方式直接读取文件，不将整个文档读入内存
+	 */
+	XlsxPackage(File file) {
+		this(file, false);
+	}
+
+	private static File spool(InputStream is) {
+		if (is == null) {
+			throw new RuntimeException("InputStream is null");
+		}
+		try {
+			File file = File.createTempFile("xlsx", ".tmp");
+			try {
+				FileOutputStream out = new FileOutputStream(file);
+				try {
+					IOUtils.copy(is, out);
+				} finally {
+					out.close();
+				}
+			} catch (IOException e) {
+				file.delete();
+				throw e;
+			}
+			return file;
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static OPCPackage open(File file) {
+		try {
+			return OPCPackage.open(file, PackageAccess.READ);
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private XlsxPackage(File file, boolean temporary) {
+		this.tempFile = temporary ? file : null;
+		try {
+			this.pkg = open(file);
+		} catch (RuntimeException e) {
+			deleteTempFile();
+			throw e;
+		}
+		if (temporary && file.delete()) {
+			tempFile = null;
+		}
+		try {
+			XSSFReader reader = new XSSFReader(pkg);
+			List<PackagePart> parts = new ArrayList<PackagePart>();
+			List<String> names = new ArrayList<String>();
+			XSSFReader.SheetIterator it = (XSSFReader.SheetIterator) reader.getSheetsData();
+			while (it.hasNext()) {
+				it.next().close();
+				parts.add(it.getSheetPart());
+				names.add(it.getSheetName());
+			}
+			this.sheets = Collections.unmodifiableList(parts);
+			this.sheetNames = Collections.unmodifiableList(names);
+		} catch (Exception e) {
+			pkg.revert();
+			deleteTempFile();
+			throw new RuntimeException(e);
+		}
+	}
+
+	private void deleteTempFile() {
+		if (tempFile != null && !tempFile.delete()) {
+			tempFile.deleteOnExit();
+		}
+		tempFile = null;
+	}
+
+	/**
+	 * 设置共享字符串表保存在堆中的总长度上限（字符数），超过时溢出到临时文件，小于0表示不溢出；须在读取工作表前设置
+	 */
+	synchronized void setSpillThreshold(long spillThreshold) {
+		this.spillThreshold = spillThreshold;
+	}
+
+	synchronized SharedStrings getSharedStrings() throws IOException {
+		if (sst == null) {
+			List<PackagePart> parts = pkg.getPartsByContentType(XSSFRelation.SHARED_STRINGS.getContentType());
+			InputStream in = parts.isEmpty() ? null : parts.get(0).getInputStream();
+			try {
+				sst = new SharedStrings(in, spillThreshold);
+			} finally {
+				if (in != null) {
+					in.close();
+				}
+			}
+		}
+		return sst;
+	}
+
+	@Override
+	public int getNumberOfSheets() {
+		return sheets.size();
+	}
+
+	@Override
+	public String getSheetName(int sheetIndex) {
+		return sheetNames.get(sheetIndex);
+	}
+
+	@Override
+	public List<CellRangeAddress> readMergedRegions(int sheetIndex) throws IOException {
+		return XlsxSheetReader.readMergedRegions(this, sheetIndex);
+	}
+
+	@Override
+	public RowReader openReader(int sheetIndex, int headerNum, boolean[] columns, MergedRegions mergedRegions) throws IOException {
+		return new XlsxSheetReader(this, sheetIndex, headerNum, columns, mergedRegions);
+	}
+
+	/**
+	 * 打开工作表的XML数据流
+	 */
+	InputStream openSheet(int sheetIndex) throws IOException {
+		if (sheetIndex < 0 || sheetIndex >= sheets.size()) {
+			throw new RuntimeException("文档中没有工作表!");
+		}
+		return sheets.get(sheetIndex).getInputStream();
+	}
+
+	/**
+	 * 关闭文档（只读，不保存），删除临时文件
+	 */
+	@Override
+	public void close() {
+		synchronized (this) {
+			if (sst != null) {
+				sst.close();
+			}
+		}
+		pkg.revert();
+		deleteTempFile();
+	}
+
+}
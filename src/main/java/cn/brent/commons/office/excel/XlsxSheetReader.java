@@ -0,0 +1,276 @@
+package cn.brent.commons.office.excel;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.poi.ss.usermodel.FormulaError;
+import org.apache.poi.ss.util.CellRangeAddress;
+
+/**
+ * “XLSX”工作表行读取器
+ *
+ * 以StAX拉取方式逐行解析工作表XML，只解码映射的列；公式单元格取文件中缓存的计算结果
+ */
+final class XlsxSheetReader implements RowReader {
+
+	static final XMLInputFactory XML_FACTORY = XMLInputFactory.newInstance();
+
+	static {
+		XML_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		XML_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+	}
+
+	private final InputStream in;
+
+	private final XMLStreamReader xml;
+
+	private final SharedStrings sst;
+
+	private final int headerNum;
+
+	/**
+	 * 需要读取的列
+	 */
+	private final boolean[] columns;
+
+	private final Object[] values;
+
+	/**
+	 * 各列上一个共享字符串的序号及其值
+	 */
+	private final int[] sstIndexes;
+
+	private final String[] sstValues;
+
+	private final MergedRegions.Cursor merged;
+
+	private int rownum = -1;
+
+	private int column;
+
+	private boolean finished;
+
+	XlsxSheetReader(XlsxPackage xlsx, int sheetIndex, int headerNum, boolean[] columns, MergedRegions mergedRegions) throws IOException {
+		this.sst = xlsx.getSharedStrings();
+		this.headerNum = headerNum;
+		this.columns = columns;
+		this.values = new Object[columns.length];
+		this.sstIndexes = new int[columns.length];
+		this.sstValues = new String[columns.length];
+		Arrays.fill(sstIndexes, -1);
+		this.merged = mergedRegions.cursor(null);
+		this.in = xlsx.openSheet(sheetIndex);
+		try {
+			this.xml = XML_FACTORY.createXMLStreamReader(in);
+		} catch (XMLStreamException e) {
+			in.close();
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * 扫描工作表中的合并单元格区域
+	 */
+	static List<CellRangeAddress> readMergedRegions(XlsxPackage xlsx, int sheetIndex) throws IOException {
+		List<CellRangeAddress> list = new ArrayList<CellRangeAddress>();
+		InputStream in = xlsx.openSheet(sheetIndex);
+		try {
+			XMLStreamReader xml = XML_FACTORY.createXMLStreamReader(in);
+			while (xml.hasNext()) {
+				if (xml.next() == XMLStreamConstants.START_ELEMENT && "mergeCell".equals(xml.getLocalName())) {
+					list.add(CellRangeAddress.valueOf(xml.getAttributeValue(null, "ref")));
+				}
+			}
+			xml.close();
+		} catch (XMLStreamException e) {
+			throw new IOException(e);
+		} finally {
+			in.close();
+		}
+		return list;
+	}
+
+	/**
+	 * 单元格引用（如“AB12”）转换为列号
+	 */
+	static int columnIndex(String ref) {
+		int col = 0;
+		for (int i = 0; i < ref.length(); i++) {
+			char ch = ref.charAt(i);
+			if (ch < 'A' || ch > 'Z') {
+				break;
+			}
+			col = col * 26 + (ch - 'A' + 1);
+		}
+		return col - 1;
+	}
+
+	@Override
+	public boolean next() throws IOException {
+		try {
+			while (!finished && xml.hasNext()) {
+				int event = xml.next();
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					String name = xml.getLocalName();
+					if ("row".equals(name)) {
+						String r = xml.getAttributeValue(null, "r");
+						rownum = r == null ? rownum + 1 : Integer.parseInt(r) - 1;
+						column = -1;
+						Arrays.fill(values, null);
+						merged.advance(rownum);
+					} else if ("c".equals(name)) {
+						readCell();
+					}
+				} else if (event == XMLStreamConstants.END_ELEMENT) {
+					String name = xml.getLocalName();
+					if ("row".equals(name) && rownum > headerNum) {
+						return true;
+					} else if ("sheetData".equals(name)) {
+						finished = true;
+					}
+				}
+			}
+		} catch (XMLStreamException e) {
+			throw new IOException(e);
+		}
+		finished = true;
+		return false;
+	}
+
+	/**
+	 * 读取一个单元格，当前事件为c元素开始
+	 */
+	private void readCell() throws XMLStreamException {
+		String ref = xml.getAttributeValue(null, "r");
+		column = ref == null ? column + 1 : columnIndex(ref);
+		if (column >= columns.length || !columns[column]) {
+			skipElement();
+			return;
+		}
+		String type = xml.getAttributeValue(null, "t");
+		boolean formula = false;
+		String text = null;
+		while (xml.hasNext()) {
+			int event = xml.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				String name = xml.getLocalName();
+				if ("v".equals(name)) {
+					text = xml.getElementText();
+				} else if ("is".equals(name)) {
+					text = readInlineString();
+				} else {
+					formula |= "f".equals(name);
+					skipElement();
+				}
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				break;
+			}
+		}
+		Object val = toValue(type, formula, text);
+		values[column] = val;
+		merged.offer(column, val);
+	}
+
+	/**
+	 * 按单元格类型转换为与{@link ImportExcel#getCellValue(org.apache.poi.ss.usermodel.Cell)}相同的值
+	 */
+	private Object toValue(String type, boolean formula, String text) {
+		if (text == null) {
+			return "";
+		} else if (type == null || "n".equals(type)) {
+			return text.isEmpty() ? "" : Double.valueOf(text);
+		} else if ("s".equals(type)) {
+			return sharedString(Integer.parseInt(text));
+		} else if ("b".equals(type)) {
+			// 公式的布尔结果在getDatas()中同样取空值
+			return formula ? "" : Boolean.valueOf("1".equals(text));
+		} else if ("e".equals(type)) {
+			try {
+				return FormulaError.forString(text).getCode();
+			} catch (IllegalArgumentException e) {
+				return text;
+			}
+		}
+		return text;
+	}
+
+	/**
+	 * 共享字符串；与本列上一个单元格的序号相同时复用其值，不再查找（溢出到文件时免去解码），
+	 * 重复值较多的列中相同的字符串为同一个实例
+	 */
+	private String sharedString(int idx) {
+		if (sstIndexes[column] != idx) {
+			sstIndexes[column] = idx;
+			sstValues[column] = sst.getEntryAt(idx);
+		}
+		return sstValues[column];
+	}
+
+	/**
+	 * 读取内联字符串，当前事件为is元素开始（忽略拼音rPh）
+	 */
+	private String readInlineString() throws XMLStreamException {
+		StringBuilder sb = new StringBuilder();
+		while (xml.hasNext()) {
+			int event = xml.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				String name = xml.getLocalName();
+				if ("t".equals(name)) {
+					sb.append(xml.getElementText());
+				} else if ("rPh".equals(name)) {
+					skipElement();
+				}
+			} else if (event == XMLStreamConstants.END_ELEMENT && "is".equals(xml.getLocalName())) {
+				break;
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * 跳过当前元素及其子元素
+	 */
+	private void skipElement() throws XMLStreamException {
+		int depth = 1;
+		while (depth > 0 && xml.hasNext()) {
+			int event = xml.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				depth++;
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				depth--;
+			}
+		}
+	}
+
+	@Override
+	public int getRowNum() {
+		return rownum;
+	}
+
+	@Override
+	public Object getValue(int column) {
+		if (merged.isMerged(column)) {
+			return merged.getValue(column);
+		}
+		return values[column];
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			xml.close();
+		} catch (XMLStreamException e) {
+			throw new IOException(e);
+		} finally {
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,42 @@
+package cn.brent.commons.office.excel;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * CSV解析
+ */
+public class CsvParserTest {
+
+	@Test
+	public void testParse() throws IOException {
+		String longField = StringUtils.repeat('x', 20000);
+		String csv = "﻿a,\"b,\"\"c\"\"\",\r\n\r\n\"multi\nline\"," + longField + ",\"" + longField + "\"\n1,2";
+		CsvParser parser = new CsvParser(new StringReader(csv), ',');
+
+		Assert.assertTrue(parser.next(null));
+		Assert.assertEquals(0, parser.getRecordNum());
+		Assert.assertEquals(3, parser.getCount());
+		Assert.assertEquals("a", parser.get(0));
+		Assert.assertEquals("b,\"c\"", parser.get(1));
+		Assert.assertEquals("", parser.get(2));
+
+		// 空行不计
+		Assert.assertTrue(parser.next(new boolean[] { true, false, true }));
+		Assert.assertEquals(1, parser.getRecordNum());
+		Assert.assertEquals("multi\nline", parser.get(0));
+		Assert.assertNull(parser.get(1));
+		Assert.assertEquals(longField, parser.get(2));
+
+		Assert.assertTrue(parser.next(null));
+		Assert.assertEquals("2", parser.get(1));
+		Assert.assertNull(parser.get(2));
+		Assert.assertFalse(parser.next(null));
+		parser.close();
+	}
+
+}
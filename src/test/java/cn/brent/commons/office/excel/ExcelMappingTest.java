@@ -0,0 +1,128 @@
+package cn.brent.commons.office.excel;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import cn.brent.commons.office.excel.ExcelField.ExAct;
+import cn.brent.commons.office.excel.ExcelField.ExAlign;
+import cn.brent.commons.office.excel.handler.NumToStrHandler;
+import cn.brent.commons.office.excel.handler.ValueHandler;
+
+/**
+ * 存在生成的映射时使用生成的代码，否则使用反射
+ */
+public class ExcelMappingTest {
+
+	@Test
+	public void testGeneratedMapper() {
+		MappedVo_ExcelMapper.calls = 0;
+		List<ExcelColumn> columns = ExcelMapping.of(MappedVo.class).getImportColumns();
+		Assert.assertEquals(2, columns.size());
+		Assert.assertEquals("商家号", columns.get(0).getTitle());
+		Assert.assertEquals(ExAlign.right, columns.get(0).getAlign());
+		Assert.assertTrue(columns.get(0).newHandler() instanceof NumToStrHandler);
+		// 映射中不保存处理器实例
+		Assert.assertNotSame(columns.get(0).newHandler(), columns.get(0).newHandler());
+		Assert.assertNull(columns.get(1).newHandler());
+		Assert.assertEquals(int.class, columns.get(1).getValType());
+
+		MappedVo vo = ExcelMapping.of(MappedVo.class).newInstance(MappedVo.class);
+		columns.get(0).set(vo, "1001");
+		columns.get(1).set(vo, 3);
+		Assert.assertEquals("1001", columns.get(0).get(vo));
+		Assert.assertEquals(3, vo.getCount());
+		Assert.assertEquals(4, MappedVo_ExcelMapper.calls);
+
+		// 没有生成的映射
+		columns = ExcelMapping.of(ValueConverterTest.Vo.class).getImportColumns();
+		Assert.assertTrue(columns.size() > 0);
+	}
+
+}
+
+/**
+ * 列由手写的{@link MappedVo_ExcelMapper}提供；不加@ExcelField注解，注解处理器不会再生成同名的类
+ */
+class MappedVo {
+
+	private String merId;
+
+	private int count;
+
+	public String getMerId() {
+		return merId;
+	}
+
+	public void setMerId(String merId) {
+		this.merId = merId;
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+	public void setCount(int count) {
+		this.count = count;
+	}
+
+}
+
+/**
+ * 与注解处理器为“商家号”、“数量”两列生成的代码相同，另外统计调用次数
+ */
+@SuppressWarnings({ "rawtypes", "unchecked" })
+class MappedVo_ExcelMapper extends ExcelMapper<MappedVo> {
+
+	static int calls;
+
+	@Override
+	public Class<MappedVo> getType() {
+		return MappedVo.class;
+	}
+
+	@Override
+	public MappedVo newInstance() {
+		calls++;
+		return new MappedVo();
+	}
+
+	@Override
+	public List<Column<MappedVo>> getColumns() {
+		List<Column<MappedVo>> columns = new ArrayList<Column<MappedVo>>();
+		columns.add(new Column<MappedVo>(field(0, "商家号", ExAct.both, ExAlign.right, "", NumToStrHandler.class), String.class) {
+			@Override
+			public Object get(MappedVo bean) {
+				calls++;
+				return bean.getMerId();
+			}
+
+			@Override
+			public void set(MappedVo bean, Object val) {
+				calls++;
+				bean.setMerId((String) val);
+			}
+
+			@Override
+			public ValueHandler newHandler() {
+				return new NumToStrHandler();
+			}
+		});
+		columns.add(new Column<MappedVo>(field(1, "数量", ExAct.both, ExAlign.auto, "", ValueHandler.class), int.class) {
+			@Override
+			public Object get(MappedVo bean) {
+				return bean.getCount();
+			}
+
+			@Override
+			public void set(MappedVo bean, Object val) {
+				calls++;
+				bean.setCount((Integer) val);
+			}
+		});
+		return columns;
+	}
+
+}
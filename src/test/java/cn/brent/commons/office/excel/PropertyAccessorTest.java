@@ -0,0 +1,47 @@
+package cn.brent.commons.office.excel;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * 属性访问器
+ */
+public class PropertyAccessorTest {
+
+	@Test
+	public void testAccessor() throws Exception {
+		PropertyAccessor accessor = PropertyAccessor.forField(Vo.class, Vo.class.getDeclaredField("name"));
+		Vo vo = new Vo();
+		accessor.set(vo, "a");
+		Assert.assertEquals("a", vo.getName());
+		Assert.assertEquals("a", accessor.get(vo));
+
+		accessor = PropertyAccessor.forMethod(Vo.class, Vo.class.getDeclaredMethod("getAmount"), Long.class);
+		accessor.set(vo, 10L);
+		Assert.assertEquals(Long.valueOf(10L), accessor.get(vo));
+	}
+
+	public static class Vo {
+
+		private String name;
+
+		private Long amount;
+
+		public String getName() {
+			return name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+
+		public Long getAmount() {
+			return amount;
+		}
+
+		public void setAmount(Long amount) {
+			this.amount = amount;
+		}
+
+	}
+}
@@ -0,0 +1,49 @@
+package cn.brent.commons.office.excel;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * 共享字符串表溢出到临时文件
+ */
+public class SharedStringsTest {
+
+	@Test
+	public void testSpill() throws IOException {
+		StringBuilder xml = new StringBuilder("<sst xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\">");
+		xml.append("<si><r><rPr><b/></rPr><t>富</t></r><r><t xml:space=\"preserve\"> 文本</t></r><rPh sb=\"0\" eb=\"1\"><t>フ</t></rPh></si>");
+		xml.append("<si><t></t></si>");
+		for (int i = 0; i < 3000; i++) {
+			xml.append("<si><t>id-").append(i).append("</t></si>");
+		}
+		xml.append("</sst>");
+		byte[] bytes = xml.toString().getBytes("UTF-8");
+
+		SharedStrings heap = new SharedStrings(new ByteArrayInputStream(bytes), -1);
+		SharedStrings spilled = new SharedStrings(new ByteArrayInputStream(bytes), 100);
+		Assert.assertFalse(heap.isSpilled());
+		Assert.assertTrue(spilled.isSpilled());
+		Assert.assertEquals(3002, spilled.getCount());
+		Assert.assertEquals("富 文本", spilled.getEntryAt(0));
+		Assert.assertEquals("", spilled.getEntryAt(1));
+		for (int round = 0; round < 2; round++) {
+			for (int i = 0; i < heap.getCount(); i++) {
+				Assert.assertEquals(heap.getEntryAt(i), spilled.getEntryAt(i));
+			}
+		}
+
+		// 关闭后释放映射
+		spilled.close();
+		heap.close();
+		Assert.assertEquals("id-5", heap.getEntryAt(7));
+		try {
+			spilled.getEntryAt(7);
+			Assert.fail();
+		} catch (IllegalStateException e) {
+		}
+	}
+
+}
@@ -0,0 +1,157 @@
+package cn.brent.commons.office.excel;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import cn.brent.commons.office.excel.handler.ValueHandler;
+
+/**
+ * 导入值转换与错误记录
+ */
+public class ValueConverterTest {
+
+	@Test
+	@SuppressWarnings("rawtypes")
+	public void testConvert() {
+		ImportExcel<Vo> ei = new ImportExcel<Vo>(Vo.class, true, 0) {
+		};
+		ValueHandler[] handlers = ExcelColumn.newHandlers(ExcelMapping.of(Vo.class).getImportColumns());
+		Vo vo = ei.toBean(row(1, 12.0, "34", "true", "1.50", "B", 42005.0, "NAME"), handlers);
+		Assert.assertEquals(12, vo.count);
+		Assert.assertEquals(34L, vo.total);
+		Assert.assertTrue(vo.flag);
+		Assert.assertEquals(new BigDecimal("1.50"), vo.price);
+		Assert.assertEquals(Level.B, vo.level);
+		Assert.assertNotNull(vo.day);
+		Assert.assertEquals("NAME", vo.name);
+		Assert.assertEquals(0, ei.getErrorCount());
+
+		// 空白单元格不算错误，基本类型保留默认值
+		vo = ei.toBean(row(2, "", "", "", "", "", "", 100.0), handlers);
+		Assert.assertEquals(0, vo.count);
+		Assert.assertNull(vo.price);
+		Assert.assertEquals("100", vo.name);
+		Assert.assertEquals(0, ei.getErrorCount());
+
+		vo = ei.toBean(row(3, "x", "1L", "yes", "0x10", "C", "2015/01/01", "a"), handlers);
+		Assert.assertEquals(0, vo.count);
+		Assert.assertNull(vo.level);
+		Assert.assertNull(vo.day);
+		Assert.assertEquals(6, ei.getErrorCount());
+		ImportError error = ei.getErrors().get(0);
+		Assert.assertEquals(3, error.getRowNum());
+		Assert.assertEquals(0, error.getColumnNum());
+		Assert.assertEquals("数量", error.getTitle());
+		Assert.assertEquals(int.class, error.getType());
+
+		ei.setMaxErrors(7);
+		ei.toBean(row(4, "x", "x", "x", "x", "x", "x", "x"), handlers);
+		Assert.assertEquals(12, ei.getErrorCount());
+		Assert.assertEquals(7, ei.getErrors().size());
+	}
+
+	@Test
+	public void testIntegralText() {
+		ValueConverter l = ValueConverter.forType(Long.class, "");
+		// 超过2^53的文本不经过double
+		Assert.assertEquals(12345678901234567L, l.convert("12345678901234567"));
+		Assert.assertEquals(-9223372036854775808L, l.convert("-9223372036854775808"));
+		Assert.assertEquals(1L, l.convert("1.9"));
+		Assert.assertEquals(1000L, l.convert("1e3"));
+		Assert.assertEquals(0L, l.convert("5e-99999"));
+		Assert.assertSame(ValueConverter.INVALID, l.convert("99999999999999999999"));
+
+		ValueConverter i = ValueConverter.forType(int.class, "");
+		Assert.assertEquals(2147483647, i.convert("+2147483647"));
+		Assert.assertSame(ValueConverter.INVALID, i.convert("3000000000"));
+
+		// 指数超出范围的文本为转换失败，不抛出异常
+		Assert.assertSame(ValueConverter.INVALID, l.convert("1e9999999999"));
+		Assert.assertSame(ValueConverter.INVALID, i.convert("-1e9999999999"));
+		Assert.assertSame(ValueConverter.INVALID, ValueConverter.forType(BigDecimal.class, "").convert("1e9999999999"));
+	}
+
+	@Test
+	public void testIsDecimal() {
+		Assert.assertTrue(ValueConverter.isDecimal("-1.5e3"));
+		Assert.assertTrue(ValueConverter.isDecimal(".5"));
+		Assert.assertFalse(ValueConverter.isDecimal("."));
+		Assert.assertFalse(ValueConverter.isDecimal("1e"));
+		Assert.assertFalse(ValueConverter.isDecimal("NaN"));
+	}
+
+	private static RowValues row(final int rownum, final Object... values) {
+		return new RowValues() {
+			@Override
+			public int getRowNum() {
+				return rownum;
+			}
+
+			@Override
+			public Object getValue(int column) {
+				return column < values.length ? values[column] : null;
+			}
+		};
+	}
+
+	public enum Level {
+		A, B
+	}
+
+	public static class Vo {
+
+		@ExcelField(sort = 0, title = "数量")
+		private int count;
+
+		@ExcelField(sort = 1, title = "合计")
+		private long total;
+
+		@ExcelField(sort = 2, title = "标记")
+		private boolean flag;
+
+		@ExcelField(sort = 3, title = "单价")
+		private BigDecimal price;
+
+		@ExcelField(sort = 4, title = "等级")
+		private Level level;
+
+		@ExcelField(sort = 5, title = "日期")
+		private Date day;
+
+		@ExcelField(sort = 6, title = "名称")
+		private String name;
+
+		public void setCount(int count) {
+			this.count = count;
+		}
+
+		public void setTotal(long total) {
+			this.total = total;
+		}
+
+		public void setFlag(boolean flag) {
+			this.flag = flag;
+		}
+
+		public void setPrice(BigDecimal price) {
+			this.price = price;
+		}
+
+		public void setLevel(Level level) {
+			this.level = level;
+		}
+
+		public void setDay(Date day) {
+			this.day = day;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+
+	}
+
+}
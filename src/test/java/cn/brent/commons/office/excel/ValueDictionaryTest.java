@@ -0,0 +1,48 @@
+package cn.brent.commons.office.excel;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ValueDictionaryTest {
+
+	@Test
+	public void testConcurrentDuplicates() throws InterruptedException {
+		final ValueDictionary dict = new ValueDictionary(2);
+		final CountDownLatch start = new CountDownLatch(1);
+		Thread[] threads = new Thread[8];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+					for (int i = 0; i < 1000; i++) {
+						dict.canonical(new String("a"));
+					}
+				}
+			};
+			threads[t].start();
+		}
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		Assert.assertEquals(1, dict.size());
+
+		// 重复的值不占名额，第二个值仍可加入
+		String b = new String("b");
+		Assert.assertSame(b, dict.canonical(b));
+		Assert.assertSame(b, dict.canonical(new String("b")));
+		Assert.assertEquals(2, dict.size());
+		String c = new String("c");
+		Assert.assertSame(c, dict.canonical(c));
+		Assert.assertNotSame(c, dict.canonical(new String("c")));
+		Assert.assertEquals(2, dict.size());
+	}
+
+}
@@ -0,0 +1,417 @@
+package junit;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Assert;
+import org.junit.Test;
+
+import cn.brent.commons.office.excel.ExcelField;
+import cn.brent.commons.office.excel.ExcelListener;
+import cn.brent.commons.office.excel.ExcelPhase;
+import cn.brent.commons.office.excel.ExcelStats;
+import cn.brent.commons.office.excel.ExcelField.ExAlign;
+import cn.brent.commons.office.excel.ExportExcel;
+import cn.brent.commons.office.excel.ExportQueue;
+import cn.brent.commons.office.excel.ImportExcel;
+import cn.brent.commons.office.excel.StreamingExportExcel;
+import cn.brent.commons.office.excel.StreamingImportExcel;
+import cn.brent.commons.office.excel.TemplateExportExcel;
+
+public class ExportExcelTest {
+
+	@Test
+	public void testColumnStyles() throws IOException {
+		List<DateVo> list = new ArrayList<DateVo>();
+		for (int i = 0; i < 3; i++) {
+			DateVo vo = new DateVo();
+			vo.setName("n" + i);
+			vo.setDay(new Date());
+			vo.setTime(new Date());
+			vo.setAmount(i * 1.5);
+			list.add(vo);
+		}
+		ExportExcel<DateVo> ex = new ExportExcel<DateVo>(DateVo.class, true, null);
+		ex.setDataList(list);
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		ex.write(bos);
+
+		XSSFWorkbook wb = new XSSFWorkbook(new ByteArrayInputStream(bos.toByteArray()));
+		int styles = wb.getNumCellStyles();
+		Row row = wb.getSheetAt(0).getRow(1);
+		Assert.assertEquals("General", row.getCell(0).getCellStyle().getDataFormatString());
+		Assert.assertEquals("yyyy-MM-dd", row.getCell(1).getCellStyle().getDataFormatString());
+		Assert.assertEquals("yyyy-MM-dd HH:mm", row.getCell(2).getCellStyle().getDataFormatString());
+		Assert.assertEquals("#,##0.00", row.getCell(3).getCellStyle().getDataFormatString());
+		Assert.assertEquals(row.getCell(2).getCellStyle().getIndex(), wb.getSheetAt(0).getRow(3).getCell(2).getCellStyle().getIndex());
+
+		// 样式数量与数据行数无关
+		list.addAll(list);
+		ex = new ExportExcel<DateVo>(DateVo.class, true, null);
+		ex.setDataList(list);
+		bos = new ByteArrayOutputStream();
+		ex.write(bos);
+		Assert.assertEquals(styles, new XSSFWorkbook(new ByteArrayInputStream(bos.toByteArray())).getNumCellStyles());
+	}
+
+	@Test
+	public void testSheetRollover() throws IOException {
+		List<DateVo> list = new ArrayList<DateVo>();
+		for (int i = 0; i < 25; i++) {
+			DateVo vo = new DateVo();
+			vo.setName("n" + i);
+			list.add(vo);
+		}
+		ExportExcel<DateVo> ex = new ExportExcel<DateVo>(DateVo.class, "标题", 5, true);
+		ex.setMaxRowsPerSheet(10);
+		ex.setDataList(list);
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		ex.write(bos);
+
+		// 每个工作表：标题 + 表头 + 8行数据
+		XSSFWorkbook wb = new XSSFWorkbook(new ByteArrayInputStream(bos.toByteArray()));
+		Assert.assertEquals(4, wb.getNumberOfSheets());
+		Assert.assertEquals("Export", wb.getSheetName(0));
+		Assert.assertEquals("Export4", wb.getSheetName(3));
+		for (int i = 0; i < wb.getNumberOfSheets(); i++) {
+			Sheet sheet = wb.getSheetAt(i);
+			Assert.assertEquals("标题", sheet.getRow(0).getCell(0).getStringCellValue());
+			Assert.assertEquals("名称", sheet.getRow(1).getCell(0).getStringCellValue());
+			Assert.assertEquals("n" + (i * 8), sheet.getRow(2).getCell(0).getStringCellValue());
+			Assert.assertEquals(wb.getSheetAt(0).getColumnWidth(0), sheet.getColumnWidth(0));
+		}
+		Assert.assertEquals(2, wb.getSheetAt(3).getLastRowNum());
+	}
+
+	@Test
+	public void testStreamingExport() throws IOException {
+		List<ImportExcelTest.MOrderVo> datas = new ImportExcel<ImportExcelTest.MOrderVo>(ImportExcelTest.MOrderVo.class, true, ExportExcelTest.class.getResourceAsStream("/test.xlsx"), 1, 0).getDatas();
+
+		ExportExcel<ImportExcelTest.MOrderVo> ex = new ExportExcel<ImportExcelTest.MOrderVo>(ImportExcelTest.MOrderVo.class, "测试导出", 1, true);
+		ex.setDataList(datas);
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		ex.write(bos);
+
+		List<ImportExcelTest.MOrderVo> result = new StreamingImportExcel<ImportExcelTest.MOrderVo>(ImportExcelTest.MOrderVo.class, new ByteArrayInputStream(bos.toByteArray()), 1, 0).getDatas();
+		Assert.assertEquals(datas.size(), result.size());
+		for (int i = 0; i < datas.size(); i++) {
+			Assert.assertEquals(datas.get(i).getMerId(), result.get(i).getMerId());
+			Assert.assertEquals(datas.get(i).getMerOrderId(), result.get(i).getMerOrderId());
+			Assert.assertEquals(datas.get(i).getIp(), result.get(i).getIp());
+		}
+	}
+
+	@Test
+	public void testStreamingWrite() throws Exception {
+		final StreamingExportExcel<DateVo> ex = new StreamingExportExcel<DateVo>(DateVo.class, "标题");
+		ex.setMaxRowsPerSheet(10);
+		final ExportQueue<DateVo> queue = new ExportQueue<DateVo>(4);
+		Thread producer = new Thread() {
+			@Override
+			public void run() {
+				try {
+					for (int i = 0; i < 25; i++) {
+						DateVo vo = new DateVo();
+						vo.setName(i == 0 ? " <a&b> " : "n" + i);
+						vo.setDay(new Date(0));
+						vo.setAmount(i * 1.5);
+						queue.put(vo);
+					}
+					queue.complete();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		};
+		producer.start();
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		ex.write(queue, bos);
+		producer.join();
+
+		XSSFWorkbook wb = new XSSFWorkbook(new ByteArrayInputStream(bos.toByteArray()));
+		Assert.assertEquals(4, wb.getNumberOfSheets());
+		Assert.assertEquals("Export4", wb.getSheetName(3));
+		Sheet sheet = wb.getSheetAt(0);
+		Assert.assertEquals("标题", sheet.getRow(0).getCell(0).getStringCellValue());
+		Assert.assertEquals("名称", sheet.getRow(1).getCell(0).getStringCellValue());
+		Assert.assertEquals(" <a&b> ", sheet.getRow(2).getCell(0).getStringCellValue());
+		Assert.assertEquals(new Date(0), sheet.getRow(2).getCell(1).getDateCellValue());
+		Assert.assertEquals("yyyy-MM-dd", sheet.getRow(2).getCell(1).getCellStyle().getDataFormatString());
+		Assert.assertEquals("", sheet.getRow(2).getCell(2).getStringCellValue());
+		Assert.assertEquals(1.5, sheet.getRow(3).getCell(3).getNumericCellValue(), 0);
+		Assert.assertEquals("#,##0.00", sheet.getRow(3).getCell(3).getCellStyle().getDataFormatString());
+		Assert.assertEquals("名称", wb.getSheetAt(3).getRow(1).getCell(0).getStringCellValue());
+		Assert.assertEquals("n24", wb.getSheetAt(3).getRow(2).getCell(0).getStringCellValue());
+		Assert.assertEquals(2, wb.getSheetAt(3).getLastRowNum());
+	}
+
+	@Test
+	public void testStreamingWriteAborted() throws Exception {
+		StreamingExportExcel<DateVo> ex = new StreamingExportExcel<DateVo>(DateVo.class, "标题");
+		final ExportQueue<DateVo> queue = new ExportQueue<DateVo>(2);
+		final Throwable[] producerError = new Throwable[1];
+		Thread producer = new Thread() {
+			@Override
+			public void run() {
+				try {
+					for (int i = 0; i < 100000; i++) {
+						DateVo vo = new DateVo();
+						vo.setName("n" + i);
+						queue.put(vo);
+					}
+					queue.complete();
+				} catch (Throwable e) {
+					producerError[0] = e;
+				}
+			}
+		};
+		producer.start();
+		OutputStream broken = new OutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				throw new IOException("disk full");
+			}
+		};
+		try {
+			ex.write(queue, broken);
+			Assert.fail();
+		} catch (IOException e) {
+			Assert.assertEquals("disk full", e.getMessage());
+		}
+		producer.join(5000);
+		Assert.assertFalse(producer.isAlive());
+		Assert.assertTrue(producerError[0] instanceof IllegalStateException);
+		Assert.assertFalse(queue.hasNext());
+
+		// 生产出错不阻塞，写出线程抛出异常
+		ExportQueue<DateVo> failed = new ExportQueue<DateVo>(1);
+		failed.put(new DateVo());
+		failed.fail(new IllegalArgumentException("bad row"));
+		try {
+			failed.hasNext();
+			Assert.fail();
+		} catch (RuntimeException e) {
+			Assert.assertTrue(e.getCause() instanceof IllegalArgumentException);
+		}
+	}
+
+	@Test
+	public void testStreamingFirstByte() throws IOException {
+		final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		final int[] sizeAtFirstRow = { -1 };
+		Iterator<DateVo> data = new Iterator<DateVo>() {
+			private int i;
+
+			@Override
+			public boolean hasNext() {
+				return i < 10;
+			}
+
+			@Override
+			public DateVo next() {
+				if (i++ == 0) {
+					sizeAtFirstRow[0] = bos.size();
+				}
+				return new DateVo();
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+		new StreamingExportExcel<DateVo>(DateVo.class, null).write(data, bos);
+		// 取第一行数据前已开始输出
+		Assert.assertTrue(sizeAtFirstRow[0] > 0);
+		Assert.assertEquals(10, new XSSFWorkbook(new ByteArrayInputStream(bos.toByteArray())).getSheetAt(0).getLastRowNum());
+	}
+
+	@Test
+	public void testColumnWidths() throws IOException {
+		List<DateVo> list = new ArrayList<DateVo>();
+		for (int i = 0; i < 50; i++) {
+			DateVo vo = new DateVo();
+			vo.setName(i == 0 ? "一个很长很长很长很长很长很长的名称" : "n" + i);
+			list.add(vo);
+		}
+		// 第一行在写出前已移出内存
+		ExportExcel<DateVo> ex = new ExportExcel<DateVo>(DateVo.class, null, 5, true);
+		ex.setDataList(list);
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		ex.write(bos);
+		Sheet sheet = new XSSFWorkbook(new ByteArrayInputStream(bos.toByteArray())).getSheetAt(0);
+		Assert.assertEquals((34 + 2) * 256, sheet.getColumnWidth(0));
+		// 日期列按格式“yyyy-MM-dd”
+		Assert.assertEquals((10 + 2) * 256, sheet.getColumnWidth(1));
+	}
+
+	@Test
+	public void testListener() throws IOException {
+		List<DateVo> list = new ArrayList<DateVo>();
+		for (int i = 0; i < 10; i++) {
+			DateVo vo = new DateVo();
+			vo.setName("n" + i);
+			list.add(vo);
+		}
+		final List<ExcelPhase> phases = new ArrayList<ExcelPhase>();
+		final ExcelStats[] result = new ExcelStats[1];
+		ExcelListener listener = new ExcelListener() {
+			@Override
+			public void onPhaseEnd(ExcelPhase phase, ExcelStats stats) {
+				phases.add(phase);
+				result[0] = stats;
+			}
+		};
+		ExportExcel<DateVo> ex = new ExportExcel<DateVo>(DateVo.class, true, null);
+		ex.setListener(listener);
+		ex.setDataList(list);
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		ex.write(bos);
+		Assert.assertEquals(3, phases.size());
+		Assert.assertEquals(ExcelPhase.STYLE, phases.get(0));
+		Assert.assertEquals(ExcelPhase.CONVERT, phases.get(1));
+		Assert.assertEquals(ExcelPhase.WRITE, phases.get(2));
+		Assert.assertEquals(10, result[0].getRows());
+		Assert.assertEquals(40, result[0].getCells());
+		Assert.assertEquals(bos.size(), result[0].getBytes());
+
+		phases.clear();
+		StreamingExportExcel<DateVo> sx = new StreamingExportExcel<DateVo>(DateVo.class, null);
+		sx.setListener(listener);
+		bos = new ByteArrayOutputStream();
+		sx.write(list.iterator(), bos);
+		Assert.assertEquals(2, phases.size());
+		Assert.assertEquals(ExcelPhase.WRITE, phases.get(1));
+		Assert.assertEquals(10, result[0].getRows());
+		Assert.assertEquals(bos.size(), result[0].getBytes());
+	}
+
+	@Test
+	public void testTemplateExport() throws IOException {
+		// 模板：标题（合并）、表头、样式行（含合并）、合计行
+		XSSFWorkbook tpl = new XSSFWorkbook();
+		Sheet sheet = tpl.createSheet("报表");
+		sheet.createRow(0).createCell(0).setCellValue("月度报表");
+		sheet.addMergedRegion(new CellRangeAddress(0, 0, 0, 3));
+		sheet.createRow(1).createCell(0).setCellValue("名称");
+		sheet.createFreezePane(0, 2);
+		CellStyle money = tpl.createCellStyle();
+		money.setDataFormat(tpl.createDataFormat().getFormat("0.0"));
+		sheet.createRow(2).createCell(3).setCellStyle(money);
+		sheet.addMergedRegion(new CellRangeAddress(2, 2, 1, 2));
+		sheet.addMergedRegion(new CellRangeAddress(1, 2, 4, 4));
+		Row footer = sheet.createRow(3);
+		footer.createCell(0).setCellValue("合计");
+		footer.createCell(3).setCellFormula("SUM(D3:D3)");
+		sheet.addMergedRegion(new CellRangeAddress(3, 3, 0, 2));
+		File file = File.createTempFile("template", ".xlsx");
+		FileOutputStream fos = new FileOutputStream(file);
+		try {
+			tpl.write(fos);
+		} finally {
+			fos.close();
+		}
+
+		TemplateExportExcel<DateVo> ex = new TemplateExportExcel<DateVo>(DateVo.class, file, 0, 2);
+		Assert.assertTrue(file.delete());
+		ByteArrayOutputStream bos;
+		List<DateVo> list = new ArrayList<DateVo>();
+		for (int i = 0; i < 5; i++) {
+			DateVo vo = new DateVo();
+			vo.setName("n" + i);
+			vo.setDay(new Date());
+			vo.setAmount(i * 1.5);
+			list.add(vo);
+		}
+		bos = new ByteArrayOutputStream();
+		ex.write(list, bos);
+		XSSFWorkbook wb = new XSSFWorkbook(new ByteArrayInputStream(bos.toByteArray()));
+		Sheet out = wb.getSheetAt(0);
+		Assert.assertEquals("月度报表", out.getRow(0).getCell(0).getStringCellValue());
+		Assert.assertEquals("n0", out.getRow(2).getCell(0).getStringCellValue());
+		Assert.assertEquals("0.0", out.getRow(2).getCell(3).getCellStyle().getDataFormatString());
+		Assert.assertEquals("yyyy-MM-dd", out.getRow(2).getCell(1).getCellStyle().getDataFormatString());
+		Assert.assertEquals(7, out.getLastRowNum());
+		Assert.assertEquals("合计", out.getRow(7).getCell(0).getStringCellValue());
+		Assert.assertEquals("SUM(D3:D7)", out.getRow(7).getCell(3).getCellFormula());
+		Assert.assertEquals(15.0, wb.getCreationHelper().createFormulaEvaluator().evaluate(out.getRow(7).getCell(3)).getNumberValue(), 0);
+		Assert.assertEquals(8, out.getNumMergedRegions());
+		Assert.assertEquals("A1:D1", out.getMergedRegion(0).formatAsString());
+		// 样式行内的合并复制到每个数据行，延伸到样式行的合并扩展
+		Assert.assertEquals("B3:C3", out.getMergedRegion(1).formatAsString());
+		Assert.assertEquals("B7:C7", out.getMergedRegion(5).formatAsString());
+		Assert.assertEquals("E2:E7", out.getMergedRegion(6).formatAsString());
+		Assert.assertEquals("A8:C8", out.getMergedRegion(7).formatAsString());
+		Assert.assertNotNull(out.getPaneInformation());
+
+		// 同一模板再次导出，没有数据时合计行留在原位置
+		bos = new ByteArrayOutputStream();
+		ex.write(new ArrayList<DateVo>(), bos);
+		out = new XSSFWorkbook(new ByteArrayInputStream(bos.toByteArray())).getSheetAt(0);
+		Assert.assertEquals(3, out.getLastRowNum());
+		Assert.assertEquals("SUM(D3:D3)", out.getRow(3).getCell(3).getCellFormula());
+		Assert.assertEquals(4, out.getNumMergedRegions());
+		Assert.assertEquals("B3:C3", out.getMergedRegion(1).formatAsString());
+	}
+
+	public static class DateVo {
+
+		@ExcelField(sort = 0, title = "名称")
+		private String name;
+
+		@ExcelField(sort = 1, title = "日期")
+		private Date day;
+
+		@ExcelField(sort = 2, title = "时间", format = "yyyy-MM-dd HH:mm", align = ExAlign.center)
+		private Date time;
+
+		@ExcelField(sort = 3, title = "金额", format = "#,##0.00", align = ExAlign.right)
+		private Double amount;
+
+		public String getName() {
+			return name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+
+		public Date getDay() {
+			return day;
+		}
+
+		public void setDay(Date day) {
+			this.day = day;
+		}
+
+		public Date getTime() {
+			return time;
+		}
+
+		public void setTime(Date time) {
+			this.time = time;
+		}
+
+		public Double getAmount() {
+			return amount;
+		}
+
+		public void setAmount(Double amount) {
+			this.amount = amount;
+		}
+
+	}
+}
@@ -1,14 +1,47 @@
 package junit;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.poi.hssf.usermodel.HSSFFormulaEvaluator;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.usermodel.XSSFFormulaEvaluator;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Assert;
 import org.junit.Test;
 
+import cn.brent.commons.office.excel.BatchHandler;
 import cn.brent.commons.office.excel.BlankRowFilter;
+import cn.brent.commons.office.excel.CsvExportExcel;
+import cn.brent.commons.office.excel.CsvImportExcel;
 import cn.brent.commons.office.excel.ExcelField;
+import cn.brent.commons.office.excel.ExcelListener;
+import cn.brent.commons.office.excel.ExcelPhase;
+import cn.brent.commons.office.excel.ExcelStats;
 import cn.brent.commons.office.excel.ExportExcel;
 import cn.brent.commons.office.excel.ImportExcel;
+import cn.brent.commons.office.excel.MultiSheetImportExcel;
+import cn.brent.commons.office.excel.StreamingImportExcel;
 import cn.brent.commons.office.excel.handler.NumToStrHandler;
 
 public class ImportExcelTest {
@@ -41,6 +74,593 @@ public class ImportExcelTest {
 		ex.writeFile("target/result.xlsx");
 	}
 
+	@Test
+	public void testStreaming() {
+		List<MOrderVo> expected = new ImportExcel<MOrderVo>(MOrderVo.class, true, ImportExcelTest.class.getResourceAsStream("/test.xlsx"), 1, 0).getDatas();
+		List<MOrderVo> datas = new StreamingImportExcel<MOrderVo>(MOrderVo.class, ImportExcelTest.class.getResourceAsStream("/test.xlsx"), 1, 0).getDatas();
+		Assert.assertEquals(expected.size(), datas.size());
+		assertSame(expected, datas);
+	}
+
+	@Test
+	public void testStreamingMergedAndFormula() throws IOException {
+		XSSFWorkbook wb = new XSSFWorkbook();
+		Sheet sheet = wb.createSheet();
+		sheet.createRow(0).createCell(0).setCellValue("商家号");
+		for (int i = 1; i <= 5; i++) {
+			Row row = sheet.createRow(i);
+			row.createCell(0).setCellValue(1000 + i);
+			row.createCell(1).setCellFormula("\"o\"&A" + (i + 1));
+			row.createCell(2).setCellValue("10.0.0." + i);
+		}
+		sheet.addMergedRegion(new CellRangeAddress(2, 4, 2, 2));
+		XSSFFormulaEvaluator.evaluateAllFormulaCells(wb);
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		wb.write(bos);
+		byte[] bytes = bos.toByteArray();
+
+		List<MOrderVo> expected = new ImportExcel<MOrderVo>(MOrderVo.class, true, new ByteArrayInputStream(bytes), 0, 0).getDatas();
+		List<MOrderVo> datas = new StreamingImportExcel<MOrderVo>(MOrderVo.class, new ByteArrayInputStream(bytes), 0, 0).getDatas();
+		Assert.assertEquals("10.0.0.2", datas.get(2).getIp());
+		Assert.assertEquals("o1003", datas.get(2).getMerOrderId());
+		Assert.assertEquals(expected.size(), datas.size());
+		assertSame(expected, datas);
+
+		ImportExcel<MOrderVo> cached = new ImportExcel<MOrderVo>(MOrderVo.class, true, new ByteArrayInputStream(bytes), 0, 0);
+		cached.setEvaluateFormula(false);
+		assertSame(expected, cached.getDatas());
+	}
+
+	@Test
+	public void testBatchAndIterator() throws IOException {
+		List<MOrderVo> expected = new ImportExcel<MOrderVo>(MOrderVo.class, true, ImportExcelTest.class.getResourceAsStream("/test.xlsx"), 1, 0).getDatas();
+
+		final List<MOrderVo> datas = new ArrayList<MOrderVo>();
+		new StreamingImportExcel<MOrderVo>(MOrderVo.class, ImportExcelTest.class.getResourceAsStream("/test.xlsx"), 1, 0).getDatas(1, new BatchHandler<MOrderVo>() {
+			@Override
+			public void handle(List<MOrderVo> batch) {
+				Assert.assertEquals(1, batch.size());
+				datas.addAll(batch);
+			}
+		});
+		Assert.assertEquals(expected.size(), datas.size());
+		assertSame(expected, datas);
+
+		datas.clear();
+		for (MOrderVo v : new StreamingImportExcel<MOrderVo>(MOrderVo.class, ImportExcelTest.class.getResourceAsStream("/test.xlsx"), 1, 0)) {
+			datas.add(v);
+		}
+		assertSame(expected, datas);
+
+		// 提前结束遍历时关闭迭代器释放读取器
+		final boolean[] closed = new boolean[1];
+		Reader reader = new StringReader("1,o1\n2,o2\n3,o3") {
+			@Override
+			public void close() {
+				closed[0] = true;
+				super.close();
+			}
+		};
+		Iterator<MOrderVo> it = new CsvImportExcel<MOrderVo>(MOrderVo.class, reader, CsvImportExcel.CSV, -1).iterator();
+		Assert.assertEquals("o1", it.next().getMerOrderId());
+		Assert.assertFalse(closed[0]);
+		((Closeable) it).close();
+		Assert.assertTrue(closed[0]);
+		Assert.assertFalse(it.hasNext());
+	}
+
+	@Test
+	public void testMultiSheet() throws Exception {
+		XSSFWorkbook wb = new XSSFWorkbook();
+		for (int s = 0; s < 4; s++) {
+			Sheet sheet = wb.createSheet("s" + s);
+			sheet.createRow(0).createCell(0).setCellValue("商家号");
+			for (int i = 1; i <= 100; i++) {
+				Row row = sheet.createRow(i);
+				row.createCell(0).setCellValue(s * 1000 + i);
+				row.createCell(1).setCellValue("o" + i);
+			}
+		}
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		wb.write(bos);
+
+		MultiSheetImportExcel multi = new MultiSheetImportExcel(new ByteArrayInputStream(bos.toByteArray()), 0);
+		List<List<MOrderVo>> datas = multi.getDatas(MOrderVo.class, null);
+		Assert.assertEquals(4, datas.size());
+		for (int s = 0; s < 4; s++) {
+			Assert.assertEquals(100, datas.get(s).size());
+			Assert.assertEquals(String.valueOf(s * 1000 + 1), datas.get(s).get(0).getMerId());
+		}
+
+		// 一个工作表失败时，其余工作表停止并全部退出后才抛出异常
+		final AtomicInteger filtered = new AtomicInteger();
+		List<ImportExcel<MOrderVo>> importers = new ArrayList<ImportExcel<MOrderVo>>();
+		for (int s = 0; s < 4; s++) {
+			final boolean fail = s == 0;
+			ImportExcel<MOrderVo> importer = multi.getSheet(s, MOrderVo.class);
+			importer.setBlankRowFilter(new BlankRowFilter<MOrderVo>() {
+				@Override
+				public boolean isBlankRow(MOrderVo dto) {
+					if (fail) {
+						throw new IllegalStateException("bad sheet");
+					}
+					filtered.incrementAndGet();
+					try {
+						Thread.sleep(1);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					return false;
+				}
+			});
+			importers.add(importer);
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			multi.getDatas(importers, executor);
+			Assert.fail();
+		} catch (IllegalStateException e) {
+			Assert.assertEquals("bad sheet", e.getMessage());
+			int count = filtered.get();
+			executor.shutdown();
+			Assert.assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+			Assert.assertEquals(count, filtered.get());
+			Assert.assertTrue(count < 300);
+		} finally {
+			executor.shutdownNow();
+			multi.close();
+		}
+	}
+
+	@Test
+	public void testParallelConversion() throws IOException {
+		XSSFWorkbook wb = new XSSFWorkbook();
+		Sheet sheet = wb.createSheet();
+		sheet.createRow(0).createCell(0).setCellValue("商家号");
+		for (int i = 1; i <= 5000; i++) {
+			Row row = sheet.createRow(i);
+			row.createCell(0).setCellValue(i);
+			row.createCell(1).setCellValue("o" + i);
+		}
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		wb.write(bos);
+		byte[] bytes = bos.toByteArray();
+
+		List<MOrderVo> expected = new StreamingImportExcel<MOrderVo>(MOrderVo.class, new ByteArrayInputStream(bytes), 0, 0).getDatas();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			StreamingImportExcel<MOrderVo> ie = new StreamingImportExcel<MOrderVo>(MOrderVo.class, new ByteArrayInputStream(bytes), 0, 0);
+			ie.setParallelConversion(executor, 4, 128);
+			List<MOrderVo> datas = ie.getDatas();
+			Assert.assertEquals(5000, datas.size());
+			assertSame(expected, datas);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testPipeline() throws Exception {
+		XSSFWorkbook wb = new XSSFWorkbook();
+		Sheet sheet = wb.createSheet();
+		sheet.createRow(0).createCell(0).setCellValue("商家号");
+		for (int i = 1; i <= 5000; i++) {
+			Row row = sheet.createRow(i);
+			row.createCell(0).setCellValue(i);
+			row.createCell(1).setCellValue("o" + i);
+		}
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		wb.write(bos);
+		byte[] bytes = bos.toByteArray();
+
+		List<MOrderVo> expected = new StreamingImportExcel<MOrderVo>(MOrderVo.class, new ByteArrayInputStream(bytes), 0, 0).getDatas();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			final List<MOrderVo> datas = new ArrayList<MOrderVo>();
+			StreamingImportExcel<MOrderVo> ie = new StreamingImportExcel<MOrderVo>(MOrderVo.class, new ByteArrayInputStream(bytes), 0, 0);
+			ie.setPipeline(executor, 3, 100);
+			ie.getDatas(1000, new BatchHandler<MOrderVo>() {
+				@Override
+				public void handle(List<MOrderVo> batch) {
+					Assert.assertEquals(1000, batch.size());
+					datas.addAll(batch);
+				}
+			});
+			Assert.assertEquals(5000, datas.size());
+			assertSame(expected, datas);
+
+			// 回调中取消
+			final StreamingImportExcel<MOrderVo> cancelled = new StreamingImportExcel<MOrderVo>(MOrderVo.class, new ByteArrayInputStream(bytes), 0, 0);
+			cancelled.setPipeline(executor, 3, 100);
+			final int[] batches = new int[1];
+			try {
+				cancelled.getDatas(1000, new BatchHandler<MOrderVo>() {
+					@Override
+					public void handle(List<MOrderVo> batch) {
+						batches[0]++;
+						cancelled.cancel();
+					}
+				});
+				Assert.fail();
+			} catch (CancellationException e) {
+				Assert.assertEquals(1, batches[0]);
+			}
+
+			// 转换线程出错，调用线程抛出同一异常
+			ie = new StreamingImportExcel<MOrderVo>(MOrderVo.class, new ByteArrayInputStream(bytes), 0, 0);
+			ie.setPipeline(executor, 3, 100);
+			ie.setBlankRowFilter(new BlankRowFilter<MOrderVo>() {
+				@Override
+				public boolean isBlankRow(MOrderVo vo) {
+					if ("o2500".equals(vo.getMerOrderId())) {
+						throw new IllegalStateException("bad row");
+					}
+					return false;
+				}
+			});
+			try {
+				ie.getDatas();
+				Assert.fail();
+			} catch (IllegalStateException e) {
+				Assert.assertEquals("bad row", e.getMessage());
+			}
+		} finally {
+			executor.shutdown();
+		}
+		// 各阶段均已退出
+		Assert.assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testValueDictionary() throws IOException {
+		XSSFWorkbook wb = new XSSFWorkbook();
+		Sheet sheet = wb.createSheet();
+		sheet.createRow(0).createCell(0).setCellValue("商家号");
+		for (int i = 1; i <= 300; i++) {
+			Row row = sheet.createRow(i);
+			row.createCell(0).setCellValue(1000 + i % 3);
+			row.createCell(1).setCellValue("o" + i % 3);
+		}
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		wb.write(bos);
+		byte[] bytes = bos.toByteArray();
+
+		List<MOrderVo> datas = new StreamingImportExcel<MOrderVo>(MOrderVo.class, new ByteArrayInputStream(bytes), 0, 0).getDatas();
+		Assert.assertNotSame(datas.get(0).getMerId(), datas.get(3).getMerId());
+
+		StreamingImportExcel<MOrderVo> ie = new StreamingImportExcel<MOrderVo>(MOrderVo.class, new ByteArrayInputStream(bytes), 0, 0);
+		ie.setValueDictionary(2, "商家号");
+		datas = ie.getDatas();
+		Assert.assertEquals(300, datas.size());
+		Assert.assertEquals("1001", datas.get(0).getMerId());
+		Assert.assertSame(datas.get(0).getMerId(), datas.get(297).getMerId());
+		Assert.assertSame(datas.get(1).getMerId(), datas.get(298).getMerId());
+		// 字典已满，第三个值不再共用
+		Assert.assertEquals(datas.get(2).getMerId(), datas.get(299).getMerId());
+		Assert.assertNotSame(datas.get(2).getMerId(), datas.get(299).getMerId());
+		// 共享字符串序号相同的单元格为同一实例
+		Assert.assertSame(datas.get(0).getMerOrderId(), datas.get(297).getMerOrderId());
+
+		try {
+			ie.setValueDictionary(10, "不存在");
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	@Test
+	public void testStreamingXls() throws IOException {
+		HSSFWorkbook wb = new HSSFWorkbook();
+		wb.createSheet("other").createRow(0).createCell(0).setCellValue("x");
+		Sheet sheet = wb.createSheet();
+		sheet.createRow(0).createCell(0).setCellValue("商家号");
+		for (int i = 1; i <= 200; i++) {
+			Row row = sheet.createRow(i);
+			if (i % 50 == 0) {
+				// 只有ROW记录的空行
+				continue;
+			}
+			row.createCell(0).setCellValue(1000 + i);
+			row.createCell(1).setCellFormula("\"o\"&A" + (i + 1));
+			row.createCell(2).setCellValue("10.0.0." + i);
+			row.createCell(5).setCellValue("unmapped");
+		}
+		sheet.addMergedRegion(new CellRangeAddress(2, 4, 2, 2));
+		HSSFFormulaEvaluator.evaluateAllFormulaCells(wb);
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		wb.write(bos);
+		byte[] bytes = bos.toByteArray();
+
+		List<MOrderVo> expected = new ImportExcel<MOrderVo>(MOrderVo.class, false, new ByteArrayInputStream(bytes), 1, 1).getDatas();
+		List<MOrderVo> datas = new StreamingImportExcel<MOrderVo>(MOrderVo.class, false, new ByteArrayInputStream(bytes), 1, 1).getDatas();
+		Assert.assertEquals(expected.size(), datas.size());
+		Assert.assertEquals("10.0.0.2", datas.get(2).getIp());
+		Assert.assertNull(datas.get(48).getMerId());
+		assertSame(expected, datas);
+	}
+
+	@Test
+	public void testBindByTitle() throws IOException {
+		for (boolean isXs : new boolean[] { true, false }) {
+			Workbook wb = isXs ? new XSSFWorkbook() : new HSSFWorkbook();
+			Sheet sheet = wb.createSheet();
+			sheet.createRow(0).createCell(0).setCellValue("标题");
+			String[] header = { "备注", "IP地址", "数量", "商家订单号", "金额", "商家号", "状态" };
+			Row headerRow = sheet.createRow(1);
+			for (int i = 0; i < header.length; i++) {
+				headerRow.createCell(i).setCellValue(header[i]);
+			}
+			for (int i = 2; i < 100; i++) {
+				Row row = sheet.createRow(i);
+				row.createCell(0).setCellValue("r" + i);
+				row.createCell(1).setCellValue("10.0.0." + i);
+				row.createCell(2).setCellValue(i);
+				row.createCell(3).setCellValue("o" + i);
+				row.createCell(4).setCellValue(i * 1.5);
+				row.createCell(5).setCellValue(1000 + i);
+				row.createCell(6).setCellValue("ok");
+			}
+			// 左上角在未映射的列
+			sheet.addMergedRegion(new CellRangeAddress(2, 3, 0, 1));
+			ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			wb.write(bos);
+			byte[] bytes = bos.toByteArray();
+
+			ImportExcel<MOrderVo> ie = new ImportExcel<MOrderVo>(MOrderVo.class, isXs, new ByteArrayInputStream(bytes), 1, 0);
+			ie.setBindByTitle(true);
+			List<MOrderVo> expected = ie.getDatas();
+			Assert.assertEquals("1002", expected.get(0).getMerId());
+			Assert.assertEquals("o2", expected.get(0).getMerOrderId());
+			Assert.assertEquals("r2", expected.get(1).getIp());
+			Assert.assertEquals("10.0.0.4", expected.get(2).getIp());
+
+			StreamingImportExcel<MOrderVo> sie = new StreamingImportExcel<MOrderVo>(MOrderVo.class, isXs, new ByteArrayInputStream(bytes), 1, 0);
+			sie.setBindByTitle(true);
+			List<MOrderVo> datas = sie.getDatas();
+			Assert.assertEquals(98, datas.size());
+			assertSame(expected, datas);
+		}
+
+		// 数值表头按文本匹配，没有标题的列不绑定空白表头
+		Workbook wb = new XSSFWorkbook();
+		Row headerRow = wb.createSheet().createRow(0);
+		headerRow.createCell(1).setCellValue(2015);
+		headerRow.createCell(2).setCellValue("");
+		Row row = wb.getSheetAt(0).createRow(1);
+		row.createCell(0).setCellValue("a");
+		row.createCell(1).setCellValue("b");
+		row.createCell(2).setCellValue("c");
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		wb.write(bos);
+		StreamingImportExcel<YearVo> ie = new StreamingImportExcel<YearVo>(YearVo.class, new ByteArrayInputStream(bos.toByteArray()), 0, 0);
+		ie.setBindByTitle(true);
+		List<YearVo> datas = ie.getDatas();
+		Assert.assertEquals("b", datas.get(0).getYear());
+		Assert.assertNull(datas.get(0).getRemark());
+	}
+
+	public static class YearVo {
+
+		@ExcelField(sort = 0, title = "2015")
+		private String year;
+
+		@ExcelField(sort = 1)
+		private String remark;
+
+		public String getYear() {
+			return year;
+		}
+
+		public void setYear(String year) {
+			this.year = year;
+		}
+
+		public String getRemark() {
+			return remark;
+		}
+
+		public void setRemark(String remark) {
+			this.remark = remark;
+		}
+
+	}
+
+	public static class NumberVo {
+
+		@ExcelField(sort = 0, title = "比率")
+		private Float rate;
+
+		@ExcelField(sort = 1, title = "金额")
+		private Double amount;
+
+		public Float getRate() {
+			return rate;
+		}
+
+		public void setRate(Float rate) {
+			this.rate = rate;
+		}
+
+		public Double getAmount() {
+			return amount;
+		}
+
+		public void setAmount(Double amount) {
+			this.amount = amount;
+		}
+
+	}
+
+	@Test
+	public void testSharedStringsSpill() throws IOException {
+		XSSFWorkbook wb = new XSSFWorkbook();
+		Sheet sheet = wb.createSheet();
+		sheet.createRow(0).createCell(0).setCellValue("商家号");
+		for (int i = 1; i <= 1000; i++) {
+			Row row = sheet.createRow(i);
+			row.createCell(0).setCellValue("m" + i);
+			row.createCell(1).setCellValue("o" + i);
+			row.createCell(2).setCellValue("10.0.0." + (i % 10));
+		}
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		wb.write(bos);
+		byte[] bytes = bos.toByteArray();
+
+		List<MOrderVo> expected = new StreamingImportExcel<MOrderVo>(MOrderVo.class, new ByteArrayInputStream(bytes), 0, 0).getDatas();
+		StreamingImportExcel<MOrderVo> sie = new StreamingImportExcel<MOrderVo>(MOrderVo.class, new ByteArrayInputStream(bytes), 0, 0);
+		sie.setSharedStringsThreshold(1000);
+		List<MOrderVo> datas = sie.getDatas();
+		Assert.assertEquals(1000, datas.size());
+		Assert.assertEquals("o1000", datas.get(999).getMerOrderId());
+		assertSame(expected, datas);
+	}
+
+	@Test
+	public void testOpenFile() throws IOException {
+		for (boolean isXs : new boolean[] { true, false }) {
+			Workbook wb = isXs ? new XSSFWorkbook() : new HSSFWorkbook();
+			for (int s = 0; s < 2; s++) {
+				Sheet sheet = wb.createSheet();
+				sheet.createRow(0).createCell(0).setCellValue("商家号");
+				for (int i = 1; i <= 100; i++) {
+					Row row = sheet.createRow(i);
+					row.createCell(0).setCellValue(s * 1000 + i);
+					row.createCell(1).setCellValue("o" + i);
+					row.createCell(2).setCellValue("10.0.0." + i);
+				}
+			}
+			ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			wb.write(bos);
+			File file = new File("target/open-file." + (isXs ? "xlsx" : "xls"));
+			FileOutputStream os = new FileOutputStream(file);
+			try {
+				os.write(bos.toByteArray());
+			} finally {
+				os.close();
+			}
+
+			List<MOrderVo> expected = new ImportExcel<MOrderVo>(MOrderVo.class, isXs, new ByteArrayInputStream(bos.toByteArray()), 0, 1).getDatas();
+			ImportExcel<MOrderVo> ie = new ImportExcel<MOrderVo>(MOrderVo.class, file.toPath(), 0, 1);
+			try {
+				assertSame(expected, ie.getDatas());
+			} finally {
+				ie.close();
+			}
+			StreamingImportExcel<MOrderVo> sie = new StreamingImportExcel<MOrderVo>(MOrderVo.class, file.toPath(), 0, 1);
+			try {
+				assertSame(expected, sie.getDatas());
+			} finally {
+				sie.close();
+			}
+			MultiSheetImportExcel mie = new MultiSheetImportExcel(file.toPath(), 0);
+			try {
+				List<List<MOrderVo>> sheets = mie.getDatas(MOrderVo.class, null);
+				Assert.assertEquals("1001", sheets.get(1).get(0).getMerId());
+				assertSame(expected, sheets.get(1));
+			} finally {
+				mie.close();
+			}
+			Assert.assertTrue(file.delete());
+		}
+	}
+
+	@Test
+	public void testCsv() throws IOException {
+		List<MOrderVo> list = new ArrayList<MOrderVo>();
+		for (int i = 0; i < 100; i++) {
+			MOrderVo vo = new MOrderVo();
+			vo.setMerId(String.valueOf(1000 + i));
+			vo.setMerOrderId(i == 0 ? "a,\"b\"\nc" : "o" + i);
+			vo.setIp("10.0.0." + i);
+			list.add(vo);
+		}
+		for (char separator : new char[] { CsvImportExcel.CSV, CsvImportExcel.TSV }) {
+			StringWriter sw = new StringWriter();
+			CsvExportExcel<MOrderVo> ex = new CsvExportExcel<MOrderVo>(MOrderVo.class, sw, separator);
+			ex.setDataList(list);
+			ex.flush();
+
+			CsvImportExcel<MOrderVo> ie = new CsvImportExcel<MOrderVo>(MOrderVo.class, new StringReader(sw.toString()), separator, 0);
+			List<MOrderVo> datas = ie.getDatas();
+			Assert.assertEquals(100, datas.size());
+			assertSame(list, datas);
+		}
+
+		// 浮点数按十进制表示输出，不用科学计数法
+		List<NumberVo> numbers = new ArrayList<NumberVo>();
+		float[] rates = { 1.1f, 1e10f, 1.5e20f, -2f };
+		double[] amounts = { 1.1, 1e15, 1.5e20, -2.0 };
+		for (int i = 0; i < rates.length; i++) {
+			NumberVo vo = new NumberVo();
+			vo.setRate(rates[i]);
+			vo.setAmount(amounts[i]);
+			numbers.add(vo);
+		}
+		StringWriter sw = new StringWriter();
+		CsvExportExcel<NumberVo> nex = new CsvExportExcel<NumberVo>(NumberVo.class, sw, CsvImportExcel.CSV);
+		nex.setDataList(numbers);
+		nex.flush();
+		Assert.assertEquals("比率,金额\r\n1.1,1.1\r\n10000000000,1000000000000000\r\n150000000000000000000,150000000000000000000\r\n-2,-2\r\n", sw.toString());
+
+		// 按表头名称绑定，跳过未映射的列
+		String tsv = "说明\n备注\tIP地址\t商家订单号\t商家号\nx\t10.0.0.1\to1\t1001\n";
+		CsvImportExcel<MOrderVo> ie = new CsvImportExcel<MOrderVo>(MOrderVo.class, new ByteArrayInputStream(tsv.getBytes("UTF-8")), "UTF-8", CsvImportExcel.TSV, 1);
+		ie.setBindByTitle(true);
+		List<MOrderVo> datas = ie.getDatas();
+		Assert.assertEquals(1, datas.size());
+		Assert.assertEquals("1001", datas.get(0).getMerId());
+		Assert.assertEquals("o1", datas.get(0).getMerOrderId());
+		Assert.assertEquals("10.0.0.1", datas.get(0).getIp());
+	}
+
+	@Test
+	public void testListener() throws IOException {
+		final List<ExcelPhase> phases = new ArrayList<ExcelPhase>();
+		ExcelListener listener = new ExcelListener() {
+			@Override
+			public void onPhaseEnd(ExcelPhase phase, ExcelStats stats) {
+				phases.add(phase);
+			}
+		};
+		for (boolean streaming : new boolean[] { false, true }) {
+			phases.clear();
+			ImportExcel<MOrderVo> ie = streaming ? new StreamingImportExcel<MOrderVo>(MOrderVo.class, ImportExcelTest.class.getResourceAsStream("/test.xlsx"), 1, 0)
+					: new ImportExcel<MOrderVo>(MOrderVo.class, true, ImportExcelTest.class.getResourceAsStream("/test.xlsx"), 1, 0);
+			ie.setListener(listener);
+			List<MOrderVo> datas = ie.getDatas();
+			Assert.assertEquals(3, phases.size());
+			Assert.assertEquals(ExcelPhase.OPEN, phases.get(0));
+			Assert.assertEquals(ExcelPhase.PARSE, phases.get(1));
+			Assert.assertEquals(ExcelPhase.CONVERT, phases.get(2));
+		}
+
+		// 各列的转换失败数
+		String csv = "名称,日期,时间,金额\nn1,2020-01-01,,1.5\nn2,x,,y\nn3,,,z\n";
+		ImportExcel<ExportExcelTest.DateVo> ie = new CsvImportExcel<ExportExcelTest.DateVo>(ExportExcelTest.DateVo.class, new StringReader(csv), CsvImportExcel.CSV, 0);
+		final ExcelStats[] result = new ExcelStats[1];
+		ie.setListener(new ExcelListener() {
+			@Override
+			public void onPhaseEnd(ExcelPhase phase, ExcelStats stats) {
+				result[0] = stats;
+			}
+		});
+		Assert.assertEquals(3, ie.getDatas().size());
+		Assert.assertEquals(3, result[0].getRows());
+		Assert.assertEquals(12, result[0].getCells());
+		Assert.assertEquals(Integer.valueOf(1), result[0].getFailures().get("日期"));
+		Assert.assertEquals(Integer.valueOf(2), result[0].getFailures().get("金额"));
+		Assert.assertTrue(result[0].getNanos(ExcelPhase.CONVERT) > 0);
+	}
+
+	private void assertSame(List<MOrderVo> expected, List<MOrderVo> datas) {
+		Assert.assertTrue(expected.size() > 0);
+		for (int i = 0; i < expected.size(); i++) {
+			Assert.assertEquals(expected.get(i).getMerId(), datas.get(i).getMerId());
+			Assert.assertEquals(expected.get(i).getMerOrderId(), datas.get(i).getMerOrderId());
+			Assert.assertEquals(expected.get(i).getIp(), datas.get(i).getIp());
+		}
+	}
+
 	public static class MOrderVo {
 
 		@ExcelField(sort = 0, handler = NumToStrHandler.class, title = "商家号")